@@ -1,9 +1,13 @@
 package io.getarrays.securecapita;
 
+import io.getarrays.securecapita.provider.BoundedBCryptPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -13,6 +17,7 @@ import java.util.Arrays;
 import java.util.List;
 
 @SpringBootApplication(exclude = {SecurityAutoConfiguration.class})
+@EnableScheduling
 public class SecurecapitaApplication {
 
 	private static final int STRENGHT = 12 ;
@@ -21,9 +26,12 @@ public class SecurecapitaApplication {
 		SpringApplication.run(SecurecapitaApplication.class, args);
 	}
 
-	@Bean
-	public BCryptPasswordEncoder passwordEncoder (){
-		return new BCryptPasswordEncoder(STRENGHT);
+	@Bean(destroyMethod = "shutdown")
+	public BCryptPasswordEncoder passwordEncoder (@Value("${password-hashing.threads:0}") int threads,
+												  @Value("${password-hashing.queue-capacity:64}") int queueCapacity,
+												  @Value("${password-hashing.retry-after-seconds:2}") long retryAfterSeconds,
+												  MeterRegistry meterRegistry){
+		return new BoundedBCryptPasswordEncoder(STRENGHT, threads, queueCapacity, retryAfterSeconds, meterRegistry);
 	}
 
 	@Bean
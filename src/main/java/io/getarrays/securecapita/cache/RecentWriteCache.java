@@ -0,0 +1,50 @@
+package io.getarrays.securecapita.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+import static java.lang.Boolean.TRUE;
+
+/**
+ * Emails and user ids written to within the sticky window. Reads for them stay on the primary so a change
+ * such as a registration or a new password is visible to the next request while the replica catches up.
+ * The window is per instance and must be longer than replica.max-lag.
+ */
+@Component
+public class RecentWriteCache {
+
+    private final boolean enabled;
+    // Holds normalized emails and Long user ids, which never equal each other
+    private final Cache<Object, Boolean> writes;
+
+    public RecentWriteCache(@Value("${replica.enabled:false}") boolean enabled,
+                            @Value("${replica.sticky-window:5s}") Duration stickyWindow,
+                            @Value("${replica.sticky-maximum-size:100000}") long maximumSize) {
+        this.enabled = enabled;
+        this.writes = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(stickyWindow).build();
+    }
+
+    public void markWritten(String email) {
+        if(enabled && email != null) writes.put(normalize(email), TRUE);
+    }
+
+    public void markWritten(Long userId) {
+        if(enabled && userId != null) writes.put(userId, TRUE);
+    }
+
+    public boolean isRecentlyWritten(String email) {
+        return email != null && writes.getIfPresent(normalize(email)) != null;
+    }
+
+    public boolean isRecentlyWritten(Long userId) {
+        return userId != null && writes.getIfPresent(userId) != null;
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,73 @@
+package io.getarrays.securecapita.cache;
+
+import io.getarrays.securecapita.domain.Role;
+import io.getarrays.securecapita.rowmapper.RoleRowMapper;
+import io.getarrays.securecapita.utils.PermissionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.getarrays.securecapita.query.RoleQuery.SELECT_ROLES_QUERY;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toUnmodifiableMap;
+
+/**
+ * In-memory copy of the Roles table. It is loaded at startup, reloaded when a role id or name
+ * is not found, and reloaded every {@code cache.roles.refresh-interval} so permission changes
+ * made directly in the database are picked up without a restart.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoleCatalog {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final UserPrincipalCache principalCache;
+    private volatile Map<Long, Role> rolesById = Map.of();
+    private volatile Map<String, Role> rolesByName = Map.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${cache.roles.refresh-interval:PT5M}", initialDelayString = "${cache.roles.refresh-interval:PT5M}")
+    public void refresh() {
+        List<Role> roles = jdbc.query(SELECT_ROLES_QUERY, new RoleRowMapper());
+        Map<Long, Role> loaded = roles.stream().collect(toUnmodifiableMap(Role::getId, identity()));
+        boolean changed = !rolesById.isEmpty() && !rolesById.equals(loaded);
+        // Drops the authority lists of permission strings no role uses any more
+        PermissionUtils.retainAll(roles.stream().map(Role::getPermission).toList());
+        roles.forEach(role -> PermissionUtils.getAuthorities(role.getPermission()));
+        rolesByName = roles.stream().collect(toUnmodifiableMap(Role::getName, identity()));
+        rolesById = loaded;
+        if(changed) {
+            // Cached principals carry the permissions of their role
+            principalCache.invalidateAll();
+            log.info("Roles changed, reloaded {} roles and cleared the principal cache", roles.size());
+        } else {
+            log.info("Loaded {} roles into the role catalog", roles.size());
+        }
+    }
+
+    public Role getRoleById(Long id) {
+        Role role = rolesById.get(id);
+        if(role == null) {
+            refresh();
+            role = rolesById.get(id);
+        }
+        return role;
+    }
+
+    public Role getRoleByName(String name) {
+        Role role = rolesByName.get(name);
+        if(role == null) {
+            refresh();
+            role = rolesByName.get(name);
+        }
+        return role;
+    }
+}
@@ -0,0 +1,68 @@
+package io.getarrays.securecapita.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.getarrays.securecapita.dto.UserDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded, expiring cache of the authenticated principal (user and role) keyed by email.
+ * Entries must be invalidated whenever the password, enabled/locked flags or role of a user change.
+ */
+@Component
+@Slf4j
+public class UserPrincipalCache {
+
+    private final Cache<String, UserDTO> cache;
+
+    public UserPrincipalCache(@Value("${cache.principal.maximum-size:10000}") long maximumSize,
+                              @Value("${cache.principal.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public UserDTO get(String email, Function<String, UserDTO> loader) {
+        return cache.get(email, loader);
+    }
+
+    public void invalidate(String email) {
+        if(email == null) return;
+        log.debug("Invalidating cached principal for email: {}", email);
+        cache.invalidate(email);
+    }
+
+    public void invalidate(Long userId) {
+        if(userId == null) return;
+        log.debug("Invalidating cached principal for user id: {}", userId);
+        cache.asMap().values().removeIf(user -> userId.equals(user.getId()));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    public long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+}
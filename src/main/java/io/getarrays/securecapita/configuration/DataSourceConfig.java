@@ -0,0 +1,29 @@
+package io.getarrays.securecapita.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+/**
+ * The export pool in ExportConfig is a DataSource bean too, which turns Boot's DataSource auto-configuration
+ * off, so the main pool is declared here the way Boot builds it. With replica.enabled ReplicaDataSourceConfig
+ * declares it instead.
+ */
+@Configuration
+@ConditionalOnProperty(name = "replica.enabled", havingValue = "false", matchIfMissing = true)
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if(StringUtils.hasText(properties.getName())) dataSource.setPoolName(properties.getName());
+        return dataSource;
+    }
+}
@@ -0,0 +1,67 @@
+package io.getarrays.securecapita.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME;
+import static org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME;
+
+/**
+ * Streaming exports run on their own bounded executor and connection pool, so a long download never
+ * occupies the request threads that serve logins or the connections of the main pool. When every
+ * export slot is taken the request is rejected.
+ */
+@Configuration
+public class ExportConfig {
+    private static final int EXPORT_POOL_SIZE = 2;
+
+    @Bean
+    public ThreadPoolTaskExecutor exportExecutor(@Value("${export.threads:2}") int threads,
+                                                 @Value("${export.queue-capacity:4}") int queueCapacity) {
+        ThreadPoolTaskExecutor exportExecutor = new ThreadPoolTaskExecutor();
+        exportExecutor.setCorePoolSize(threads);
+        exportExecutor.setMaxPoolSize(threads);
+        exportExecutor.setQueueCapacity(queueCapacity);
+        exportExecutor.setThreadNamePrefix("export-");
+        return exportExecutor;
+    }
+
+    // Any Executor bean turns Boot's applicationTaskExecutor off, and every other MVC async request still runs on it
+    @Lazy
+    @Primary
+    @Bean(name = { APPLICATION_TASK_EXECUTOR_BEAN_NAME, DEFAULT_TASK_EXECUTOR_BEAN_NAME })
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Starts from spring.datasource and its hikari settings, or from replica.datasource when replicas are
+     * enabled so exports read from the replica like the other read-only calls. export.datasource is bound
+     * last and can override anything, e.g. export.datasource.maximum-pool-size.
+     */
+    @Bean
+    @ConfigurationProperties("export.datasource")
+    public HikariDataSource exportDataSource(DataSourceProperties properties, Environment environment) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder binder = Binder.get(environment);
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        if(binder.bind("replica.enabled", Boolean.class).orElse(false)) {
+            binder.bind("replica.datasource", Bindable.ofInstance(dataSource));
+        }
+        dataSource.setPoolName("export");
+        dataSource.setMaximumPoolSize(EXPORT_POOL_SIZE);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+}
@@ -0,0 +1,25 @@
+package io.getarrays.securecapita.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Imports are read from a spooled copy of the upload and processed in the background, one or a few at a
+ * time. When every slot is taken the upload is rejected with a Retry-After instead of queueing without bound.
+ */
+@Configuration
+public class ImportConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor importExecutor(@Value("${import.threads:1}") int threads,
+                                                 @Value("${import.queue-capacity:4}") int queueCapacity) {
+        ThreadPoolTaskExecutor importExecutor = new ThreadPoolTaskExecutor();
+        importExecutor.setCorePoolSize(threads);
+        importExecutor.setMaxPoolSize(threads);
+        importExecutor.setQueueCapacity(queueCapacity);
+        importExecutor.setThreadNamePrefix("import-");
+        return importExecutor;
+    }
+}
@@ -0,0 +1,25 @@
+package io.getarrays.securecapita.configuration;
+
+import io.getarrays.securecapita.provider.InstrumentedNamedParameterJdbcTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.Duration;
+
+/**
+ * Replaces the auto-configured template, which backs off when this bean exists. The plain
+ * JdbcTemplate underneath is still Spring Boot's, so spring.jdbc.template settings keep applying.
+ */
+@Configuration
+public class JdbcConfig {
+
+    @Bean
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                                                 @Value("${jdbc-metrics.slow-query-threshold:200ms}") Duration slowQueryThreshold) {
+        return new InstrumentedNamedParameterJdbcTemplate(jdbcTemplate, meterRegistry, slowQueryThreshold);
+    }
+}
@@ -0,0 +1,26 @@
+package io.getarrays.securecapita.configuration;
+
+import io.getarrays.securecapita.provider.JwtKeyRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Loads the signing keys once at startup; a missing or unreadable key fails the start instead of
+ * the first login.
+ */
+@Configuration
+public class JwtConfig {
+
+    @Bean
+    @ConfigurationProperties("jwt.signing")
+    public JwtSigningProperties jwtSigningProperties() {
+        return new JwtSigningProperties();
+    }
+
+    @Bean
+    public JwtKeyRing jwtKeyRing(JwtSigningProperties properties, @Value("${jwt.secret:}") String secret) {
+        return JwtKeyRing.from(properties, secret);
+    }
+}
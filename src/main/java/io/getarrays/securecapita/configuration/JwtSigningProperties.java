@@ -0,0 +1,23 @@
+package io.getarrays.securecapita.configuration;
+
+import lombok.Data;
+import org.springframework.core.io.Resource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/* Bound from jwt.signing; with no active key id tokens are signed with HMAC512 and jwt.secret */
+@Data
+public class JwtSigningProperties {
+    private String activeKeyId;
+    private List<Key> keys = new ArrayList<>();
+
+    @Data
+    public static class Key {
+        private String id;
+        /* PEM, X.509 SubjectPublicKeyInfo */
+        private Resource publicKey;
+        /* PEM, PKCS#8; only the active key needs one, retired keys are kept for verification */
+        private Resource privateKey;
+    }
+}
@@ -0,0 +1,67 @@
+package io.getarrays.securecapita.configuration;
+
+import io.getarrays.securecapita.cache.UserPrincipalCache;
+import io.getarrays.securecapita.provider.BoundedBCryptPasswordEncoder;
+import io.getarrays.securecapita.scheduler.VerificationSweeper;
+import io.getarrays.securecapita.service.implementation.EventServiceImplementation;
+import io.getarrays.securecapita.service.implementation.TokenRevocationServiceImplementation;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes the counters the hashing pool, principal cache, audit writer, sweeper and revocation filter already keep.
+ * Every meter reads the component's own state when scraped, nothing is recorded on the request path.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder passwordHashingMetrics(BoundedBCryptPasswordEncoder encoder) {
+        return registry -> {
+            Gauge.builder("securecapita.password.hash.queue", encoder, BoundedBCryptPasswordEncoder::getQueueDepth).register(registry);
+            Gauge.builder("securecapita.password.hash.active", encoder, BoundedBCryptPasswordEncoder::getActiveCount).register(registry);
+            FunctionCounter.builder("securecapita.password.hash.rejected", encoder, BoundedBCryptPasswordEncoder::getRejectedCount).register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder principalCacheMetrics(UserPrincipalCache principalCache) {
+        return registry -> {
+            FunctionCounter.builder("securecapita.cache.principal.gets", principalCache, UserPrincipalCache::hitCount).tag("result", "hit").register(registry);
+            FunctionCounter.builder("securecapita.cache.principal.gets", principalCache, UserPrincipalCache::missCount).tag("result", "miss").register(registry);
+            FunctionCounter.builder("securecapita.cache.principal.evictions", principalCache, UserPrincipalCache::evictionCount).register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder auditEventMetrics(EventServiceImplementation eventService) {
+        return registry -> {
+            Gauge.builder("securecapita.audit.queue", eventService, EventServiceImplementation::getQueueDepth).register(registry);
+            Gauge.builder("securecapita.audit.capacity", eventService, EventServiceImplementation::getCapacity).register(registry);
+            FunctionCounter.builder("securecapita.audit.events", eventService, EventServiceImplementation::getWrittenCount).tag("result", "written").register(registry);
+            FunctionCounter.builder("securecapita.audit.events", eventService, EventServiceImplementation::getDroppedCount).tag("result", "dropped").register(registry);
+            FunctionCounter.builder("securecapita.audit.events", eventService, EventServiceImplementation::getFailedCount).tag("result", "failed").register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder sweeperMetrics(VerificationSweeper sweeper) {
+        return registry -> {
+            FunctionCounter.builder("securecapita.sweeper.purged", sweeper, VerificationSweeper::getTotalPurged).register(registry);
+            Gauge.builder("securecapita.sweeper.last.duration", sweeper, value -> value.getLastRunDuration().toMillis())
+                    .baseUnit("milliseconds").register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder tokenRevocationMetrics(TokenRevocationServiceImplementation tokenRevocationService) {
+        return registry -> {
+            FunctionCounter.builder("securecapita.token.revocation.checks", tokenRevocationService, TokenRevocationServiceImplementation::getCheckCount).register(registry);
+            FunctionCounter.builder("securecapita.token.revocation.lookups", tokenRevocationService, TokenRevocationServiceImplementation::getLookupCount).register(registry);
+            FunctionCounter.builder("securecapita.token.revocation.revoked", tokenRevocationService, TokenRevocationServiceImplementation::getRevokedCount).register(registry);
+        };
+    }
+}
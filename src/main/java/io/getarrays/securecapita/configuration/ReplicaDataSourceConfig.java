@@ -0,0 +1,70 @@
+package io.getarrays.securecapita.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.getarrays.securecapita.cache.RecentWriteCache;
+import io.getarrays.securecapita.datasource.ReadOnlyRouteAspect;
+import io.getarrays.securecapita.datasource.ReplicaHealthMonitor;
+import io.getarrays.securecapita.datasource.RoutingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Replaces the auto-configured DataSource with one that routes @ReadOnlyRoute calls to a replica.
+ * The primary pool is still built from spring.datasource, the replica pool from replica.datasource.
+ */
+@Configuration
+@ConditionalOnProperty(name = "replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("replica.datasource")
+    public HikariDataSource replicaDataSource() {
+        return new HikariDataSource();
+    }
+
+    @Bean
+    public ReplicaHealthMonitor replicaHealthMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                                     @Value("${replica.max-lag:2s}") Duration maxLag,
+                                                     @Value("${replica.lag-query:SHOW REPLICA STATUS}") String lagQuery,
+                                                     @Value("${replica.lag-column:Seconds_Behind_Source}") String lagColumn) {
+        return new ReplicaHealthMonitor(replica, maxLag, lagQuery, lagColumn);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaHealthMonitor monitor) {
+        return new RoutingDataSource(primary, replica, monitor);
+    }
+
+    @Bean
+    public ReadOnlyRouteAspect readOnlyRouteAspect(RecentWriteCache recentWrites) {
+        return new ReadOnlyRouteAspect(recentWrites);
+    }
+
+    @Bean
+    public MeterBinder replicaMetrics(ReplicaHealthMonitor monitor) {
+        return registry -> {
+            Gauge.builder("securecapita.replica.available", monitor, value -> value.isAvailable() ? 1 : 0).register(registry);
+            Gauge.builder("securecapita.replica.lag", monitor, ReplicaHealthMonitor::getLagSeconds).baseUnit("seconds").register(registry);
+        };
+    }
+}
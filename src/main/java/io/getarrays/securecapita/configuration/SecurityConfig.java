@@ -33,7 +33,9 @@ public class SecurityConfig {
             "/user/resetPassword/**",
             "/user/verify/password/**",
             "/user/verify/account/**",
-            "/user/refresh/token/**"
+            "/user/refresh/token/**",
+            "/actuator/health/**",
+            "/.well-known/jwks.json"
              };
     private final BCryptPasswordEncoder encoder;
     private final CustomAccesDeniedHandler customAccesDeniedHandler;
@@ -47,7 +49,11 @@ public class SecurityConfig {
         http.csrf().disable().cors().disable();
         http.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
         http.authorizeHttpRequests().requestMatchers(PUBLIC_URLS).permitAll();
+        // Metrics name every query, error class and pool, so only the scraper's token may read them
+        http.authorizeHttpRequests().requestMatchers("/actuator/**").hasAuthority("READ:METRICS");
         http.authorizeHttpRequests().requestMatchers(HttpMethod.DELETE, "/user/delete/**").hasAuthority("DELETE:USER");
+        http.authorizeHttpRequests().requestMatchers(HttpMethod.GET, "/user/list/**").hasAuthority("UPDATE:USER");
+        http.authorizeHttpRequests().requestMatchers("/user/bulk/**").hasAuthority("UPDATE:USER");
         http.authorizeHttpRequests().requestMatchers(HttpMethod.DELETE, "/customer/delete/**").hasAuthority("DELETE:CUSTOMER");
         http.exceptionHandling().accessDeniedHandler(customAccesDeniedHandler).authenticationEntryPoint(customAuthenticationEntryPoint);
         http.authorizeHttpRequests().anyRequest().authenticated();
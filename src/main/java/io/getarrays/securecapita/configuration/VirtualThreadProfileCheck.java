@@ -0,0 +1,23 @@
+package io.getarrays.securecapita.configuration;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.ClassUtils;
+
+/**
+ * VirtualThreadConfig lives in src/main/java21 and is only compiled with the virtual-threads Maven profile.
+ * Without this check a plain build started with the 'virtual' profile would quietly keep platform threads.
+ */
+@Configuration
+@Profile("virtual")
+public class VirtualThreadProfileCheck implements InitializingBean {
+    private static final String VIRTUAL_THREAD_CONFIG = "io.getarrays.securecapita.configuration.VirtualThreadConfig";
+
+    @Override
+    public void afterPropertiesSet() {
+        if(!ClassUtils.isPresent(VIRTUAL_THREAD_CONFIG, getClass().getClassLoader())) {
+            throw new IllegalStateException("The 'virtual' profile is active but this build has no virtual thread support. Build with -Pvirtual-threads on JDK 21 or drop the profile.");
+        }
+    }
+}
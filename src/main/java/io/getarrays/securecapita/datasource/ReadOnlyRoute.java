@@ -0,0 +1,20 @@
+package io.getarrays.securecapita.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks a repository method that only reads, so it may be served by the replica. Methods without
+ * it are read-write and always use the primary. When {@code stickyKey} is the index of an email or
+ * user id argument, the call stays on the primary if that key was written to within the sticky window.
+ */
+@Target(METHOD)
+@Retention(RUNTIME)
+@Documented
+public @interface ReadOnlyRoute {
+    int stickyKey() default -1;
+}
@@ -0,0 +1,36 @@
+package io.getarrays.securecapita.datasource;
+
+import io.getarrays.securecapita.cache.RecentWriteCache;
+import io.getarrays.securecapita.enumeration.DataSourceType;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+import static io.getarrays.securecapita.enumeration.DataSourceType.REPLICA;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isActualTransactionActive;
+
+@Aspect
+@RequiredArgsConstructor
+public class ReadOnlyRouteAspect {
+    private final RecentWriteCache recentWrites;
+
+    @Around("@annotation(readOnlyRoute)")
+    public Object route(ProceedingJoinPoint joinPoint, ReadOnlyRoute readOnlyRoute) throws Throwable {
+        // A transaction already holds a primary connection, and a recent write must be read back from the primary
+        if(isActualTransactionActive() || isSticky(joinPoint.getArgs(), readOnlyRoute.stickyKey())) return joinPoint.proceed();
+        DataSourceType previous = RoutingDataSource.getRoute();
+        RoutingDataSource.setRoute(REPLICA);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            RoutingDataSource.setRoute(previous);
+        }
+    }
+
+    private boolean isSticky(Object[] args, int stickyKey) {
+        if(stickyKey < 0 || stickyKey >= args.length) return false;
+        if(args[stickyKey] instanceof String email) return recentWrites.isRecentlyWritten(email);
+        return args[stickyKey] instanceof Long userId && recentWrites.isRecentlyWritten(userId);
+    }
+}
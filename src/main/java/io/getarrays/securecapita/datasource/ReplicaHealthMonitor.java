@@ -0,0 +1,69 @@
+package io.getarrays.securecapita.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Polls the replica's replication status. The replica is only used while it answers, replication
+ * is running and it is no more than {@code maxLag} behind the primary. It starts out unavailable
+ * until the first check passes.
+ */
+@Slf4j
+public class ReplicaHealthMonitor {
+    private final JdbcTemplate jdbc;
+    private final Duration maxLag;
+    private final String lagQuery;
+    private final String lagColumn;
+    private volatile boolean available;
+    private volatile long lagSeconds = -1;
+
+    public ReplicaHealthMonitor(DataSource replica, Duration maxLag, String lagQuery, String lagColumn) {
+        this.jdbc = new JdbcTemplate(replica);
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery;
+        this.lagColumn = lagColumn;
+    }
+
+    @Scheduled(fixedDelayString = "${replica.check-interval:PT5S}")
+    public void check() {
+        try {
+            List<Map<String, Object>> rows = jdbc.queryForList(lagQuery);
+            Object lag = rows.isEmpty() ? null : rows.get(0).get(lagColumn);
+            if(lag == null) {
+                update(false, -1, "replication is not running");
+                return;
+            }
+            long seconds = Long.parseLong(lag.toString());
+            update(seconds <= maxLag.toSeconds(), seconds, "replica is " + seconds + "s behind");
+        } catch (DataAccessException | NumberFormatException exception) {
+            update(false, -1, exception.getMessage());
+        }
+    }
+
+    public void markUnavailable(Exception exception) {
+        update(false, lagSeconds, exception.getMessage());
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    private synchronized void update(boolean nowAvailable, long lag, String reason) {
+        lagSeconds = lag;
+        if(nowAvailable == available) return;
+        available = nowAvailable;
+        if(nowAvailable) log.info("Replica is available again, routing read-only calls to it ({})", reason);
+        else log.warn("Replica is unavailable, routing all calls to the primary: {}", reason);
+    }
+}
@@ -0,0 +1,58 @@
+package io.getarrays.securecapita.datasource;
+
+import io.getarrays.securecapita.enumeration.DataSourceType;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static io.getarrays.securecapita.enumeration.DataSourceType.PRIMARY;
+import static io.getarrays.securecapita.enumeration.DataSourceType.REPLICA;
+
+/**
+ * Hands out replica connections to calls routed there by {@link ReadOnlyRouteAspect} while the
+ * replica is available, and primary connections to everything else. A replica that refuses a
+ * connection is marked unavailable and the call falls back to the primary.
+ */
+public class RoutingDataSource extends AbstractRoutingDataSource {
+    private static final ThreadLocal<DataSourceType> ROUTE = new ThreadLocal<>();
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaHealthMonitor monitor;
+
+    public RoutingDataSource(DataSource primary, DataSource replica, ReplicaHealthMonitor monitor) {
+        this.primary = primary;
+        this.replica = replica;
+        this.monitor = monitor;
+        setTargetDataSources(Map.<Object, Object>of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    public static DataSourceType getRoute() {
+        return ROUTE.get();
+    }
+
+    public static void setRoute(DataSourceType route) {
+        if(route == null) ROUTE.remove();
+        else ROUTE.set(route);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ROUTE.get() == REPLICA && monitor.isAvailable() ? REPLICA : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if(determineCurrentLookupKey() == REPLICA) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException exception) {
+                monitor.markUnavailable(exception);
+            }
+        }
+        return primary.getConnection();
+    }
+}
@@ -0,0 +1,25 @@
+package io.getarrays.securecapita.domain;
+
+import io.getarrays.securecapita.enumeration.MessageChannel;
+import io.getarrays.securecapita.enumeration.OutboxStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMessage {
+    private Long id;
+    private MessageChannel channel;
+    private String recipient;
+    private String subject;
+    private String body;
+    // Unique per logical message, enqueueing the same key twice is a no-op
+    private String dedupeKey;
+    private OutboxStatus status;
+    private int attempts;
+    private String lastError;
+}
@@ -0,0 +1,21 @@
+package io.getarrays.securecapita.domain;
+
+import io.getarrays.securecapita.enumeration.EventType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+import java.time.LocalDateTime;
+
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserEvent {
+    private String email;
+    private EventType type;
+    private String device;
+    private String ipAddress;
+    private LocalDateTime createdAt;
+}
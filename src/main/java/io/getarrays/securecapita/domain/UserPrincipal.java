@@ -1,16 +1,14 @@
 package io.getarrays.securecapita.domain;
 
 import io.getarrays.securecapita.dto.UserDTO;
+import io.getarrays.securecapita.utils.PermissionUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
 
 import static io.getarrays.securecapita.dtomapper.UserDTOMapper.fromUser;
-import static java.util.Arrays.stream;
-import static java.util.stream.Collectors.toList;
 
 @RequiredArgsConstructor
 public class UserPrincipal implements UserDetails {
@@ -21,7 +19,7 @@ public class UserPrincipal implements UserDetails {
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return stream(role.getPermission().split(",".trim())).map(SimpleGrantedAuthority::new).collect(toList());
+        return PermissionUtils.getAuthorities(role.getPermission());
     }
 
     @Override
@@ -0,0 +1,44 @@
+package io.getarrays.securecapita.dto;
+
+import io.getarrays.securecapita.enumeration.ExportFormat;
+import io.getarrays.securecapita.enumeration.ImportStatus;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+import static io.getarrays.securecapita.enumeration.ImportStatus.*;
+import static java.time.LocalDateTime.now;
+
+// Handle returned when an import is accepted, the report is only set once the import has finished
+@Getter
+public class UserImportJob {
+    private final String id;
+    private final ExportFormat format;
+    private final LocalDateTime createdAt = now();
+    private volatile ImportStatus status = QUEUED;
+    private volatile UserImportReport report;
+    private volatile String message;
+    private volatile LocalDateTime finishedAt;
+
+    public UserImportJob(String id, ExportFormat format) {
+        this.id = id;
+        this.format = format;
+    }
+
+    public void start() {
+        status = RUNNING;
+    }
+
+    public void complete(UserImportReport report) {
+        this.report = report;
+        this.message = report.getCreated() + " of " + report.getTotal() + " users imported";
+        this.finishedAt = now();
+        this.status = COMPLETED;
+    }
+
+    public void fail(String message) {
+        this.message = message;
+        this.finishedAt = now();
+        this.status = FAILED;
+    }
+}
@@ -0,0 +1,38 @@
+package io.getarrays.securecapita.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class UserImportReport {
+    // Only the first errors are kept so a bad file cannot blow up the response
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private long total;
+    private long created;
+    private long failed;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public void addRow() {
+        total++;
+    }
+
+    public void addCreated(long count) {
+        created += count;
+    }
+
+    public void addError(long row, String email, String reason) {
+        failed++;
+        if(errors.size() < MAX_REPORTED_ERRORS) errors.add(new RowError(row, email, reason));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;
+        private String email;
+        private String reason;
+    }
+}
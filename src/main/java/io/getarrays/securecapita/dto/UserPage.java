@@ -0,0 +1,13 @@
+package io.getarrays.securecapita.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class UserPage {
+    private List<UserDTO> users;
+    private String nextCursor;
+}
@@ -1,30 +1,54 @@
 package io.getarrays.securecapita.dtomapper;
 
-import com.fasterxml.jackson.databind.util.BeanUtil;
 import io.getarrays.securecapita.domain.Role;
 import io.getarrays.securecapita.domain.User;
 import io.getarrays.securecapita.dto.UserDTO;
-import org.springframework.beans.BeanUtils;
-import org.springframework.stereotype.Component;
 
+// Plain constructor calls instead of BeanUtils.copyProperties: no introspection or reflective access per mapping.
+// Any field added to User or UserDTO has to be added here as well.
 public class UserDTOMapper {
     public static UserDTO fromUser(User user){
-        UserDTO userDTO = new UserDTO();
-        BeanUtils.copyProperties(user, userDTO);
-        return userDTO;
+        return fromUser(user, null, null);
     }
 
     public static UserDTO fromUser(User user, Role role) {
-        UserDTO userDTO = new UserDTO();
-        BeanUtils.copyProperties(user, userDTO);
-        userDTO.setRoleName(role.getName());
-        userDTO.setPermissions(role.getPermission());
-        return userDTO;
+        return fromUser(user, role.getName(), role.getPermission());
     }
 
     public static User toUser(UserDTO userDTO){
-        User user = new User();
-        BeanUtils.copyProperties(userDTO, user);
-        return user;
+        return new User(
+                userDTO.getId(),
+                userDTO.getFirstName(),
+                userDTO.getLastName(),
+                userDTO.getEmail(),
+                null,
+                userDTO.getAddress(),
+                userDTO.getPhone(),
+                userDTO.getTitle(),
+                userDTO.getBio(),
+                userDTO.getImageUrl(),
+                userDTO.isEnabled(),
+                userDTO.isNotLocked(),
+                userDTO.isUsingMfa(),
+                userDTO.getCreated_at());
+    }
+
+    private static UserDTO fromUser(User user, String roleName, String permissions) {
+        return new UserDTO(
+                user.getId(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getEmail(),
+                user.getAddress(),
+                user.getPhone(),
+                user.getTitle(),
+                user.getBio(),
+                user.getImageUrl(),
+                user.isEnabled(),
+                user.isNotLocked(),
+                user.isUsingMfa(),
+                user.getCreated_at(),
+                roleName,
+                permissions);
     }
 }
@@ -0,0 +1,6 @@
+package io.getarrays.securecapita.enumeration;
+
+public enum DataSourceType {
+    PRIMARY,
+    REPLICA
+}
@@ -0,0 +1,32 @@
+package io.getarrays.securecapita.enumeration;
+
+import io.getarrays.securecapita.exception.ApiException;
+import org.springframework.http.MediaType;
+
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat from(String format) {
+        for (ExportFormat exportFormat : values()) {
+            if(exportFormat.extension.equalsIgnoreCase(format)) return exportFormat;
+        }
+        throw new ApiException("Unsupported export format: " + format + ". Use ndjson or csv");
+    }
+}
@@ -0,0 +1,5 @@
+package io.getarrays.securecapita.enumeration;
+
+public enum ImportStatus {
+    QUEUED, RUNNING, COMPLETED, FAILED
+}
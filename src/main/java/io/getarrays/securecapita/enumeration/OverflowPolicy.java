@@ -0,0 +1,8 @@
+package io.getarrays.securecapita.enumeration;
+
+public enum OverflowPolicy {
+    /* Discard the new item and count it */
+    DROP,
+    /* Wait on the calling thread until there is room */
+    BLOCK
+}
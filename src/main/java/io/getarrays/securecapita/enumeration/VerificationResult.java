@@ -0,0 +1,5 @@
+package io.getarrays.securecapita.enumeration;
+
+public enum VerificationResult {
+    VALID, EXPIRED, INVALID
+}
@@ -2,7 +2,9 @@ package io.getarrays.securecapita.exception;
 
 import io.getarrays.securecapita.domain.HttpResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.error.ErrorController;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -25,11 +27,17 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import static java.time.LocalDateTime.now;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
 import static org.springframework.http.HttpStatus.*;
 
 @RestControllerAdvice
 @Slf4j
 public class HandleException extends ResponseEntityExceptionHandler implements ErrorController {
+    private final long exportRetryAfterSeconds;
+
+    public HandleException(@Value("${export.retry-after-seconds:30}") long exportRetryAfterSeconds) {
+        this.exportRetryAfterSeconds = exportRetryAfterSeconds;
+    }
 
     @Override
     protected ResponseEntity<Object> handleExceptionInternal(Exception exception, Object body, HttpHeaders headers, HttpStatusCode statusCode, WebRequest request) {
@@ -143,6 +151,51 @@ public class HandleException extends ResponseEntityExceptionHandler implements E
                         .build(), BAD_REQUEST);
     }
 
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<HttpResponse> serviceBusyException(ServiceBusyException exception) {
+        log.error(exception.getMessage());
+
+        return ResponseEntity.status(SERVICE_UNAVAILABLE)
+                .header(RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(HttpResponse.builder()
+                        .timeStamp(now().toString())
+                        .reason(exception.getMessage())
+                        .developerMessage(exception.getMessage())
+                        .status(SERVICE_UNAVAILABLE)
+                        .statusCode(SERVICE_UNAVAILABLE.value())
+                        .build());
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<HttpResponse> tooManyRequestsException(TooManyRequestsException exception) {
+        log.error(exception.getMessage());
+
+        return ResponseEntity.status(TOO_MANY_REQUESTS)
+                .header(RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(HttpResponse.builder()
+                        .timeStamp(now().toString())
+                        .reason(exception.getMessage())
+                        .developerMessage(exception.getMessage())
+                        .status(TOO_MANY_REQUESTS)
+                        .statusCode(TOO_MANY_REQUESTS.value())
+                        .build());
+    }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<HttpResponse> taskRejectedException(TaskRejectedException exception) {
+        log.error(exception.getMessage());
+
+        return ResponseEntity.status(SERVICE_UNAVAILABLE)
+                .header(RETRY_AFTER, String.valueOf(exportRetryAfterSeconds))
+                .body(HttpResponse.builder()
+                        .timeStamp(now().toString())
+                        .reason("Too many exports are running. Please try again later")
+                        .developerMessage(exception.getMessage())
+                        .status(SERVICE_UNAVAILABLE)
+                        .statusCode(SERVICE_UNAVAILABLE.value())
+                        .build());
+    }
+
     @ExceptionHandler(LockedException.class)
     public ResponseEntity<HttpResponse> lockedException(LockedException exception) {
         log.error(exception.getMessage());
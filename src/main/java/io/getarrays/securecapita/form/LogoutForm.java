@@ -0,0 +1,8 @@
+package io.getarrays.securecapita.form;
+
+import lombok.Data;
+
+@Data
+public class LogoutForm {
+    private String refreshToken;
+}
@@ -1,7 +1,6 @@
 package io.getarrays.securecapita.handler;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.getarrays.securecapita.domain.HttpResponse;
+import io.getarrays.securecapita.utils.ErrorResponseTemplate;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -10,29 +9,17 @@ import org.springframework.security.web.access.AccessDeniedHandler;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.io.OutputStream;
 
-import static java.time.LocalDateTime.now;
 import static org.springframework.http.HttpStatus.FORBIDDEN;
-import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @Component
 public class CustomAccesDeniedHandler implements AccessDeniedHandler {
 
+    private static final ErrorResponseTemplate ACCESS_DENIED_RESPONSE = ErrorResponseTemplate.of(FORBIDDEN, "you don't have enough permission");
+
     @Override
     public void handle(HttpServletRequest request, HttpServletResponse response, AccessDeniedException accessDeniedException) throws IOException, ServletException {
-        HttpResponse httpResponse = HttpResponse.builder()
-                .timeStamp(now().toString())
-                .reason("you don't have enough permission")
-                .status(FORBIDDEN.CREATED)
-                .statusCode(FORBIDDEN.value())
-                .build();
-        response.setContentType(APPLICATION_JSON_VALUE);
-        response.setStatus(FORBIDDEN.value());
-        OutputStream out = response.getOutputStream();
-        ObjectMapper mapper  = new ObjectMapper();
-        mapper.writeValue(out, httpResponse);
-        out.flush();
+        ACCESS_DENIED_RESPONSE.write(response);
     }
 }
 
@@ -1,7 +1,6 @@
 package io.getarrays.securecapita.handler;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.getarrays.securecapita.domain.HttpResponse;
+import io.getarrays.securecapita.utils.ErrorResponseTemplate;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -10,28 +9,16 @@ import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.io.OutputStream;
 
-import static java.time.LocalDateTime.now;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
-import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @Component
 public class CustomAuthenticationEntryPoint implements AuthenticationEntryPoint {
 
+    private static final ErrorResponseTemplate UNAUTHORIZED_RESPONSE = ErrorResponseTemplate.of(UNAUTHORIZED, "You need to log in to access this resource");
+
     @Override
     public void commence(HttpServletRequest request, HttpServletResponse response, AuthenticationException authException) throws IOException, ServletException {
-        HttpResponse httpResponse = HttpResponse.builder()
-                .timeStamp(now().toString())
-                .reason("You need to log in to access this resource")
-                .status(UNAUTHORIZED)
-                .statusCode(UNAUTHORIZED.value())
-                .build();
-        response.setContentType(APPLICATION_JSON_VALUE);
-        response.setStatus(UNAUTHORIZED.value());
-        OutputStream out = response.getOutputStream();
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.writeValue(out, httpResponse);
-        out.flush();
+        UNAUTHORIZED_RESPONSE.write(response);
     }
 }
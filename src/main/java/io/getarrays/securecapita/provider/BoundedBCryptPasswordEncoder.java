@@ -0,0 +1,149 @@
+package io.getarrays.securecapita.provider;
+
+import io.getarrays.securecapita.exception.ApiException;
+import io.getarrays.securecapita.exception.ServiceBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * BCrypt encoder that runs every encode and match on its own fixed size pool with a bounded queue.
+ * When the queue is full the call fails fast with a {@link ServiceBusyException} instead of
+ * tying up more servlet threads, so credential work cannot starve the rest of the API.
+ */
+@Slf4j
+public class BoundedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder hashCount = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+
+    public BoundedBCryptPasswordEncoder(int strength, int threads, int queueCapacity, long retryAfterSeconds, MeterRegistry meterRegistry) {
+        super(strength);
+        this.encodeTimer = Timer.builder("securecapita.password.hash").tag("operation", "encode").register(meterRegistry);
+        this.matchTimer = Timer.builder("securecapita.password.hash").tag("operation", "match").register(meterRegistry);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hashing-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = retryAfterSeconds;
+        log.info("Password hashing pool started with {} threads and a queue of {}", poolSize, queueCapacity);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> super.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> super.matches(rawPassword, encodedPassword), matchTimer);
+    }
+
+    /**
+     * Hashes a batch of passwords on the given executor rather than on the bounded pool,
+     * so bulk work neither fills the login queue nor gets rejected by it.
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords, Executor batchExecutor) {
+        List<CompletableFuture<String>> hashes = rawPasswords.stream()
+                .map(rawPassword -> CompletableFuture.supplyAsync(() -> encodeTimed(rawPassword), batchExecutor))
+                .toList();
+        return hashes.stream().map(CompletableFuture::join).toList();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getHashCount() {
+        return hashCount.sum();
+    }
+
+    public long getTotalHashNanos() {
+        return hashNanos.sum();
+    }
+
+    public long getMaxHashNanos() {
+        return maxHashNanos.get();
+    }
+
+    private <T> T submit(Callable<T> task, Timer timer) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timed(task, timer));
+        } catch (RejectedExecutionException exception) {
+            rejectedCount.increment();
+            log.warn("Password hashing queue is full ({} waiting), rejecting request", getQueueDepth());
+            throw new ServiceBusyException("The server is busy. Please try again later.", retryAfterSeconds);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ApiException("An error occurred. Please try again.");
+        } catch (ExecutionException exception) {
+            if(exception.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            log.error(exception.getMessage());
+            throw new ApiException("An error occurred. Please try again.");
+        }
+    }
+
+    private String encodeTimed(CharSequence rawPassword) {
+        try {
+            return timed(() -> super.encode(rawPassword), encodeTimer);
+        } catch (RuntimeException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new ApiException("An error occurred. Please try again.");
+        }
+    }
+
+    private <T> T timed(Callable<T> task, Timer timer) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            hashCount.increment();
+            hashNanos.add(elapsed);
+            timer.record(elapsed, NANOSECONDS);
+            maxHashNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+}
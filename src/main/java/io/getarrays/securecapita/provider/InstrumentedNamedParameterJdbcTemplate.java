@@ -0,0 +1,214 @@
+package io.getarrays.securecapita.provider;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.ParameterDisposer;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static io.getarrays.securecapita.query.QueryNames.nameOf;
+import static java.util.Arrays.stream;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Times every statement run through the template and labels it with the name of its query constant
+ * instead of the SQL text. Statements slower than the threshold are logged with the names and types
+ * of their parameters, never their values.
+ */
+@Slf4j
+public class InstrumentedNamedParameterJdbcTemplate extends NamedParameterJdbcTemplate {
+    private static final String STATEMENT_METRIC = "securecapita.jdbc.statement";
+    private static final String ROWS_METRIC = "securecapita.jdbc.rows";
+    private final MeterRegistry meterRegistry;
+    private final long slowQueryNanos;
+    private final Map<String, StatementMeters> meters = new ConcurrentHashMap<>();
+
+    public InstrumentedNamedParameterJdbcTemplate(JdbcOperations jdbcOperations, MeterRegistry meterRegistry, Duration slowQueryThreshold) {
+        super(jdbcOperations);
+        this.meterRegistry = meterRegistry;
+        this.slowQueryNanos = slowQueryThreshold.toNanos();
+    }
+
+    @Override
+    protected PreparedStatementCreator getPreparedStatementCreator(String sql, SqlParameterSource paramSource,
+                                                                   @Nullable Consumer<PreparedStatementCreatorFactory> customizer) {
+        return new InstrumentedCreator(super.getPreparedStatementCreator(sql, paramSource, customizer), nameOf(sql), paramSource);
+    }
+
+    // Batches bypass the statement creator, so the whole batch is recorded as one execution
+    @Override
+    public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs) {
+        String name = nameOf(sql);
+        long start = System.nanoTime();
+        try {
+            int[] counts = super.batchUpdate(sql, batchArgs);
+            long rows = stream(counts).filter(count -> count > 0).sum();
+            record(name, System.nanoTime() - start, rows, () -> (batchArgs.length == 0 ? "[]" : getShape(batchArgs[0])) + " x " + batchArgs.length);
+            return counts;
+        } catch (RuntimeException exception) {
+            recordFailure(name, System.nanoTime() - start, exception);
+            throw exception;
+        }
+    }
+
+    private void record(String name, long nanos, long rows, Supplier<String> shape) {
+        StatementMeters statementMeters = meters.computeIfAbsent(name, this::createMeters);
+        statementMeters.timer().record(nanos, NANOSECONDS);
+        statementMeters.rows().record(rows);
+        if(nanos >= slowQueryNanos) {
+            log.warn("Slow query {} took {} ms and touched {} rows, parameters {}", name, NANOSECONDS.toMillis(nanos), rows, shape.get());
+        }
+    }
+
+    private void recordFailure(String name, long nanos, Throwable exception) {
+        Timer.builder(STATEMENT_METRIC).tag("statement", name).tag("outcome", "error").tag("exception", exception.getClass().getSimpleName())
+                .register(meterRegistry).record(nanos, NANOSECONDS);
+    }
+
+    private StatementMeters createMeters(String name) {
+        return new StatementMeters(
+                Timer.builder(STATEMENT_METRIC).tag("statement", name).tag("outcome", "success").tag("exception", "none").register(meterRegistry),
+                DistributionSummary.builder(ROWS_METRIC).tag("statement", name).register(meterRegistry));
+    }
+
+    private static String getShape(SqlParameterSource paramSource) {
+        String[] names = paramSource == null ? null : paramSource.getParameterNames();
+        if(names == null) return "[]";
+        return stream(names).map(name -> name + ":" + getType(paramSource.getValue(name))).collect(joining(", ", "[", "]"));
+    }
+
+    private static String getType(Object value) {
+        if(value == null) return "null";
+        if(value instanceof Collection<?> collection) return value.getClass().getSimpleName() + "(" + collection.size() + ")";
+        return value.getClass().getSimpleName();
+    }
+
+    private record StatementMeters(Timer timer, DistributionSummary rows) {}
+
+    private final class InstrumentedCreator implements PreparedStatementCreator, SqlProvider, ParameterDisposer {
+        private final PreparedStatementCreator delegate;
+        private final String name;
+        private final SqlParameterSource paramSource;
+
+        private InstrumentedCreator(PreparedStatementCreator delegate, String name, SqlParameterSource paramSource) {
+            this.delegate = delegate;
+            this.name = name;
+            this.paramSource = paramSource;
+        }
+
+        @Override
+        public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
+            PreparedStatement statement = delegate.createPreparedStatement(connection);
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, new StatementHandler(statement, name, paramSource));
+        }
+
+        @Override
+        public String getSql() {
+            return delegate instanceof SqlProvider sqlProvider ? sqlProvider.getSql() : null;
+        }
+
+        @Override
+        public void cleanupParameters() {
+            if(delegate instanceof ParameterDisposer parameterDisposer) parameterDisposer.cleanupParameters();
+        }
+    }
+
+    /**
+     * Accumulates execution time and row count for one statement and records them when JdbcTemplate
+     * closes it, after the result set has been read.
+     */
+    private final class StatementHandler implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final String name;
+        private final SqlParameterSource paramSource;
+        private long nanos;
+        private long rows;
+        private boolean executed;
+        private Throwable failure;
+
+        private StatementHandler(PreparedStatement statement, String name, SqlParameterSource paramSource) {
+            this.statement = statement;
+            this.name = name;
+            this.paramSource = paramSource;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "executeQuery":
+                    return countRows((ResultSet) execute(method, args));
+                case "executeUpdate", "executeLargeUpdate", "execute": {
+                    Object result = execute(method, args);
+                    if(result instanceof Number count) rows += count.longValue();
+                    return result;
+                }
+                case "close":
+                    finish();
+                    break;
+                default:
+                    break;
+            }
+            return invokeTarget(statement, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                return invokeTarget(statement, method, args);
+            } catch (Throwable exception) {
+                failure = exception;
+                throw exception;
+            } finally {
+                nanos += System.nanoTime() - start;
+                executed = true;
+            }
+        }
+
+        private ResultSet countRows(ResultSet resultSet) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                Object result = invokeTarget(resultSet, method, args);
+                if("next".equals(method.getName()) && Boolean.TRUE.equals(result)) rows++;
+                return result;
+            });
+        }
+
+        private void finish() {
+            if(!executed) return;
+            executed = false;
+            if(failure != null) recordFailure(name, nanos, failure);
+            else record(name, nanos, rows, () -> getShape(paramSource));
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException exception) {
+            throw exception.getTargetException();
+        }
+    }
+}
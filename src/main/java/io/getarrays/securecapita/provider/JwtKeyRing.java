@@ -0,0 +1,173 @@
+package io.getarrays.securecapita.provider;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import io.getarrays.securecapita.configuration.JwtSigningProperties;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.auth0.jwt.algorithms.Algorithm.*;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * The keys TokenProvider signs and verifies with. RSA keys sign RS256 and EC P-256 keys ES256, each
+ * identified by the kid header; jwt.secret (HMAC512) verifies tokens without a kid and signs when
+ * no active key id is set. Rotation is adding the new key, switching active-key-id, and removing the
+ * old key once the last refresh token it signed has expired.
+ */
+public class JwtKeyRing {
+    private static final String[] KEY_TYPES = { "RSA", "EC" };
+    private static final int P256_FIELD_SIZE = 256;
+    private final String activeKeyId;
+    private final Algorithm signingAlgorithm;
+    private final Algorithm secretAlgorithm;
+    private final Map<String, Algorithm> keyAlgorithms;
+    private final Map<String, Object> jwks;
+
+    private JwtKeyRing(String activeKeyId, Algorithm signingAlgorithm, Algorithm secretAlgorithm,
+                       Map<String, Algorithm> keyAlgorithms, List<Map<String, Object>> jwks) {
+        this.activeKeyId = activeKeyId;
+        this.signingAlgorithm = signingAlgorithm;
+        this.secretAlgorithm = secretAlgorithm;
+        this.keyAlgorithms = Map.copyOf(keyAlgorithms);
+        this.jwks = Map.of("keys", List.copyOf(jwks));
+    }
+
+    public static JwtKeyRing hmac(String secret) {
+        return from(new JwtSigningProperties(), secret);
+    }
+
+    public static JwtKeyRing from(JwtSigningProperties properties, String secret) {
+        Algorithm secretAlgorithm = StringUtils.isEmpty(secret) ? null : HMAC512(secret);
+        Map<String, Algorithm> keyAlgorithms = new LinkedHashMap<>();
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        for (JwtSigningProperties.Key key : properties.getKeys()) {
+            if(StringUtils.isEmpty(key.getId()) || key.getPublicKey() == null) throw new IllegalStateException("Every jwt.signing.keys entry needs an id and a public-key");
+            PublicKey publicKey = readPublicKey(key.getPublicKey());
+            PrivateKey privateKey = key.getPrivateKey() == null ? null : readPrivateKey(key.getPrivateKey());
+            Algorithm algorithm = getAlgorithm(key.getId(), publicKey, privateKey);
+            if(keyAlgorithms.put(key.getId(), algorithm) != null) throw new IllegalStateException("Duplicate JWT key id " + key.getId());
+            jwks.add(toJwk(key.getId(), publicKey, algorithm));
+        }
+        String activeKeyId = StringUtils.trimToNull(properties.getActiveKeyId());
+        if(activeKeyId == null) {
+            if(secretAlgorithm == null) throw new IllegalStateException("jwt.secret is required when jwt.signing.active-key-id is not set");
+            return new JwtKeyRing(null, secretAlgorithm, secretAlgorithm, keyAlgorithms, jwks);
+        }
+        boolean canSign = properties.getKeys().stream().anyMatch(key -> activeKeyId.equals(key.getId()) && key.getPrivateKey() != null);
+        if(!canSign) throw new IllegalStateException("JWT key " + activeKeyId + " is not configured with a private-key");
+        return new JwtKeyRing(activeKeyId, keyAlgorithms.get(activeKeyId), secretAlgorithm, keyAlgorithms, jwks);
+    }
+
+    /* Null when tokens are signed with jwt.secret */
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    public Algorithm getSigningAlgorithm() {
+        return signingAlgorithm;
+    }
+
+    /* Null when no jwt.secret is configured */
+    public Algorithm getSecretAlgorithm() {
+        return secretAlgorithm;
+    }
+
+    public Map<String, Algorithm> getKeyAlgorithms() {
+        return keyAlgorithms;
+    }
+
+    /* RFC 7517 key set with the public half of every configured key */
+    public Map<String, Object> getJwks() {
+        return jwks;
+    }
+
+    private static Algorithm getAlgorithm(String keyId, PublicKey publicKey, PrivateKey privateKey) {
+        if(publicKey instanceof RSAPublicKey rsaPublicKey) return RSA256(rsaPublicKey, (RSAPrivateKey) privateKey);
+        if(publicKey instanceof ECPublicKey ecPublicKey && ecPublicKey.getParams().getCurve().getField().getFieldSize() == P256_FIELD_SIZE) {
+            return ECDSA256(ecPublicKey, (ECPrivateKey) privateKey);
+        }
+        throw new IllegalStateException("JWT key " + keyId + " must be an RSA or EC P-256 key");
+    }
+
+    private static Map<String, Object> toJwk(String keyId, PublicKey publicKey, Algorithm algorithm) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kid", keyId);
+        jwk.put("use", "sig");
+        jwk.put("alg", algorithm.getName());
+        if(publicKey instanceof RSAPublicKey rsaPublicKey) {
+            jwk.put("kty", "RSA");
+            jwk.put("n", toBase64Url(rsaPublicKey.getModulus(), 0));
+            jwk.put("e", toBase64Url(rsaPublicKey.getPublicExponent(), 0));
+        } else {
+            ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("x", toBase64Url(ecPublicKey.getW().getAffineX(), P256_FIELD_SIZE / 8));
+            jwk.put("y", toBase64Url(ecPublicKey.getW().getAffineY(), P256_FIELD_SIZE / 8));
+        }
+        return jwk;
+    }
+
+    // Unsigned big-endian bytes, left padded to length, as JWK members require
+    private static String toBase64Url(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        int offset = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+        int size = bytes.length - offset;
+        byte[] unsigned = new byte[Math.max(length, size)];
+        System.arraycopy(bytes, offset, unsigned, unsigned.length - size, size);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned);
+    }
+
+    private static PublicKey readPublicKey(Resource resource) {
+        X509EncodedKeySpec keySpec = new X509EncodedKeySpec(readPem(resource));
+        for (String keyType : KEY_TYPES) {
+            try {
+                return KeyFactory.getInstance(keyType).generatePublic(keySpec);
+            } catch (GeneralSecurityException ignored) {
+                // Not a key of this type, try the next one
+            }
+        }
+        throw new IllegalStateException("JWT key " + resource.getDescription() + " is not a PEM encoded RSA or EC public key");
+    }
+
+    private static PrivateKey readPrivateKey(Resource resource) {
+        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(readPem(resource));
+        for (String keyType : KEY_TYPES) {
+            try {
+                return KeyFactory.getInstance(keyType).generatePrivate(keySpec);
+            } catch (GeneralSecurityException ignored) {
+                // Not a key of this type, try the next one
+            }
+        }
+        throw new IllegalStateException("JWT key " + resource.getDescription() + " is not a PEM encoded PKCS#8 RSA or EC private key");
+    }
+
+    private static byte[] readPem(Resource resource) {
+        try (InputStream inputStream = resource.getInputStream()) {
+            String pem = StreamUtils.copyToString(inputStream, US_ASCII);
+            return Base64.getMimeDecoder().decode(pem.replaceAll("-----[A-Z ]+-----", ""));
+        } catch (IOException exception) {
+            throw new IllegalStateException("Cannot read JWT key " + resource.getDescription(), exception);
+        }
+    }
+}
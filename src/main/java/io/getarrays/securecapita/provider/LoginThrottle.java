@@ -0,0 +1,110 @@
+package io.getarrays.securecapita.provider;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.getarrays.securecapita.cache.UserPrincipalCache;
+import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.exception.TooManyRequestsException;
+import io.getarrays.securecapita.repository.UserRepository;
+import io.getarrays.securecapita.utils.GcraRateLimiter;
+import io.getarrays.securecapita.utils.SlidingWindowCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Rate limits login attempts per IP address and per email before any password is hashed, and locks
+ * an account through Users.non_locked after too many failures inside a sliding window. Throttle locks
+ * carry a locked_until time and are lifted by {@link #unlockExpiredAccounts()}; locks set by an
+ * administrator (no locked_until) are left alone.
+ */
+@Component
+@Slf4j
+public class LoginThrottle {
+    private final UserRepository<User> userRepository;
+    private final UserPrincipalCache principalCache;
+    private final Cache<String, GcraRateLimiter> ipLimiters;
+    private final Cache<String, GcraRateLimiter> emailLimiters;
+    private final Cache<String, SlidingWindowCounter> failures;
+    private final int ipRate;
+    private final int emailRate;
+    private final Duration period;
+    private final int maxFailures;
+    private final Duration failureWindow;
+    private final Duration lockDuration;
+
+    public LoginThrottle(UserRepository<User> userRepository,
+                         UserPrincipalCache principalCache,
+                         @Value("${login-throttle.ip-rate:20}") int ipRate,
+                         @Value("${login-throttle.email-rate:5}") int emailRate,
+                         @Value("${login-throttle.period:1m}") Duration period,
+                         @Value("${login-throttle.max-failures:5}") int maxFailures,
+                         @Value("${login-throttle.failure-window:15m}") Duration failureWindow,
+                         @Value("${login-throttle.lock-duration:15m}") Duration lockDuration,
+                         @Value("${login-throttle.maximum-size:100000}") long maximumSize) {
+        this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.ipRate = ipRate;
+        this.emailRate = emailRate;
+        this.period = period;
+        this.maxFailures = maxFailures;
+        this.failureWindow = failureWindow;
+        this.lockDuration = lockDuration;
+        // Idle limiters are full buckets again, so dropping them after one period loses nothing
+        this.ipLimiters = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterAccess(period).build();
+        this.emailLimiters = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterAccess(period).build();
+        this.failures = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterAccess(failureWindow.multipliedBy(2)).build();
+    }
+
+    /* Throws TooManyRequestsException when the IP or the email is over its rate */
+    public void checkAllowed(String email, String ipAddress) {
+        if(ipAddress != null) {
+            acquire(ipLimiters.get(ipAddress, key -> new GcraRateLimiter(ipRate, period, ipRate)), "Too many login attempts from this address. Please try again later.");
+        }
+        if(email != null) {
+            acquire(emailLimiters.get(normalize(email), key -> new GcraRateLimiter(emailRate, period, emailRate)), "Too many login attempts for this account. Please try again later.");
+        }
+    }
+
+    public void onFailure(String email) {
+        if(email == null) return;
+        String key = normalize(email);
+        long recentFailures = failures.get(key, ignored -> new SlidingWindowCounter(failureWindow)).incrementAndGet();
+        if(recentFailures >= maxFailures) {
+            log.warn("Locking account {} for {} after {} failed logins", key, lockDuration, recentFailures);
+            userRepository.lockUntil(key, lockDuration);
+            principalCache.invalidate(key);
+            failures.invalidate(key);
+        }
+    }
+
+    public void onSuccess(String email) {
+        if(email != null) failures.invalidate(normalize(email));
+    }
+
+    @Scheduled(fixedDelayString = "${login-throttle.unlock-interval:PT30S}")
+    public void unlockExpiredAccounts() {
+        try {
+            List<String> unlocked = userRepository.unlockExpiredLocks();
+            unlocked.forEach(principalCache::invalidate);
+            if(!unlocked.isEmpty()) log.info("Unlocked {} accounts whose login lock expired", unlocked.size());
+        } catch (Exception exception) {
+            log.error("Could not unlock expired accounts: {}", exception.getMessage());
+        }
+    }
+
+    private static void acquire(GcraRateLimiter limiter, String message) {
+        long waitNanos = limiter.tryAcquire();
+        if(waitNanos > 0) throw new TooManyRequestsException(message, Math.max(1, NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase();
+    }
+}
@@ -1,17 +1,22 @@
 package io.getarrays.securecapita.provider;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.InvalidClaimException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.getarrays.securecapita.cache.UserPrincipalCache;
 import io.getarrays.securecapita.domain.UserPrincipal;
 import io.getarrays.securecapita.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -21,94 +26,140 @@ import org.springframework.stereotype.Component;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
-import static com.auth0.jwt.algorithms.Algorithm.*;
 import static java.lang.System.currentTimeMillis;
 import static java.util.Arrays.stream;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toUnmodifiableMap;
 
 @Component
 @RequiredArgsConstructor
 public class TokenProvider {
     private final UserService userService;
+    private final UserPrincipalCache principalCache;
+    private final MeterRegistry meterRegistry;
+    private final JwtKeyRing keyRing;
     public static final String TOKEN_CANNOT_BE_VERIFIED = "Token cannot be verified";
     private static final String GET_ARRAYS_LLC = "GET_ARRAYS_LLC";
     private static final String CUSTOMER_MANAGEMENT_SERVICE = "CUSTOMER_MANAGEMENT_SERVICE";
     private static final String AUTHORITIES = "authorities" ;
     private static final long ACCESS_TOKEN_EXPIRATION_TIME = 1_800_000;
-    private static final long REFRESH_TOKEN_EXPIRATION_TIME = 432_000_000;
-    @Value("${jwt.secret}")
-    private String secret;
+    public static final long REFRESH_TOKEN_EXPIRATION_TIME = 432_000_000;
+    // JWTVerifier is immutable, so one per key id is built up front and shared by every request thread
+    private Map<String, JWTVerifier> keyVerifiers;
+    private JWTVerifier secretVerifier;
+    private Timer createAccessTimer;
+    private Timer createRefreshTimer;
+    private Timer verifySuccessTimer;
+    private Timer verifyExpiredTimer;
+    private Timer verifyInvalidClaimTimer;
+    private Timer verifyInvalidTimer;
+    private Timer authenticationTimer;
+
+    @PostConstruct
+    public void init() {
+        keyVerifiers = keyRing.getKeyAlgorithms().entrySet().stream()
+                .collect(toUnmodifiableMap(Map.Entry::getKey, entry -> buildVerifier(entry.getValue())));
+        secretVerifier = keyRing.getSecretAlgorithm() == null ? null : buildVerifier(keyRing.getSecretAlgorithm());
+        createAccessTimer = tokenTimer("create_access", "success");
+        createRefreshTimer = tokenTimer("create_refresh", "success");
+        verifySuccessTimer = tokenTimer("verify", "success");
+        verifyExpiredTimer = tokenTimer("verify", "expired");
+        verifyInvalidClaimTimer = tokenTimer("verify", "invalid_claim");
+        verifyInvalidTimer = tokenTimer("verify", "invalid");
+        authenticationTimer = tokenTimer("authentication", "success");
+    }
 
     public String createAccessToken (UserPrincipal userPrincipal){
-        return JWT.create().withIssuer(GET_ARRAYS_LLC).withAudience(CUSTOMER_MANAGEMENT_SERVICE)
-                .withIssuedAt(new Date()).withSubject(userPrincipal.getUsername()).withArrayClaim(AUTHORITIES, getClaimsFromUser(userPrincipal))
+        return createAccessTimer.record(() -> createToken(userPrincipal).withArrayClaim(AUTHORITIES, getClaimsFromUser(userPrincipal))
                 .withExpiresAt(new Date(currentTimeMillis() + ACCESS_TOKEN_EXPIRATION_TIME))
-                .sign(HMAC512(secret.getBytes()));
+                .sign(keyRing.getSigningAlgorithm()));
     }
 
-    public String getSubject(String token, HttpServletRequest request){
+    public String createRefreshToken (UserPrincipal userPrincipal){
+        return createRefreshTimer.record(() -> createToken(userPrincipal)
+                .withExpiresAt(new Date(currentTimeMillis() + REFRESH_TOKEN_EXPIRATION_TIME))
+                .sign(keyRing.getSigningAlgorithm()));
+    }
+
+    private JWTCreator.Builder createToken(UserPrincipal userPrincipal) {
+        JWTCreator.Builder builder = JWT.create();
+        if(keyRing.getActiveKeyId() != null) builder.withKeyId(keyRing.getActiveKeyId());
+        return builder.withIssuer(GET_ARRAYS_LLC).withAudience(CUSTOMER_MANAGEMENT_SERVICE)
+                .withJWTId(randomUUID().toString()).withIssuedAt(new Date()).withSubject(userPrincipal.getUsername());
+    }
 
+    /**
+     * Verifies the signature and claims of the token once. Callers keep the returned
+     * {@link DecodedJWT} and read subject, expiry and authorities from it instead of verifying again.
+     */
+    public DecodedJWT verifyToken(String token, HttpServletRequest request) {
+        long start = System.nanoTime();
+        Timer timer = verifyInvalidTimer;
         try {
-            return getJWTVerifier().verify(token).getSubject();
+            DecodedJWT decodedJWT = JWT.decode(token);
+            decodedJWT = getVerifier(decodedJWT.getKeyId()).verify(decodedJWT);
+            timer = verifySuccessTimer;
+            return decodedJWT;
         }catch (TokenExpiredException exception){
+            timer = verifyExpiredTimer;
             request.setAttribute("expireMessage", exception.getMessage());
             throw exception;
         }catch (InvalidClaimException exception){
+            timer = verifyInvalidClaimTimer;
             request.setAttribute("invalidClaim", exception.getMessage());
             throw exception;
-        }catch (Exception exception){
-            throw exception;
+        }finally {
+            timer.record(System.nanoTime() - start, NANOSECONDS);
         }
     }
 
-    public String createRefreshToken (UserPrincipal userPrincipal){
-        return JWT.create().withIssuer(GET_ARRAYS_LLC).withAudience(CUSTOMER_MANAGEMENT_SERVICE)
-                .withIssuedAt(new Date()).withSubject(userPrincipal.getUsername())
-                .withExpiresAt(new Date(currentTimeMillis() + REFRESH_TOKEN_EXPIRATION_TIME))
-                .sign(HMAC512(secret.getBytes()));
+    private JWTVerifier getVerifier(String keyId) {
+        // Tokens without a kid were signed with jwt.secret
+        JWTVerifier verifier = keyId == null ? secretVerifier : keyVerifiers.get(keyId);
+        if(verifier == null) throw new JWTVerificationException(TOKEN_CANNOT_BE_VERIFIED);
+        return verifier;
     }
 
-    public List<GrantedAuthority>getAuthorities(String token) {
-        String []  claims = getClaimsFromToken(token);
-        return stream(claims).map(SimpleGrantedAuthority::new).collect(toList());
+    private JWTVerifier buildVerifier(Algorithm algorithm) {
+        return JWT.require(algorithm).withIssuer(GET_ARRAYS_LLC).build();
     }
 
-    public boolean isTokenValid(String email, String token){
-        JWTVerifier verifier = getJWTVerifier();
-        return StringUtils.isNotEmpty(email) && !isTokenExpired(verifier, token);
+    public String getSubject(String token, HttpServletRequest request){
+        return verifyToken(token, request).getSubject();
     }
 
-    private boolean isTokenExpired(JWTVerifier verifier, String token) {
-        Date expiration  = verifier.verify(token).getExpiresAt();
-        return expiration.before(new Date());
+    public List<GrantedAuthority> getAuthorities(DecodedJWT decodedJWT) {
+        String []  claims = decodedJWT.getClaim(AUTHORITIES).asArray(String.class);
+        return stream(claims).map(SimpleGrantedAuthority::new).collect(toList());
     }
 
-    public Authentication getAuthentication(String email, List<GrantedAuthority> authorities, HttpServletRequest request){
-        UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(userService.getUserByEmail(email), null, authorities);
-        usernamePasswordAuthenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-        return usernamePasswordAuthenticationToken;
+    public boolean isTokenValid(DecodedJWT decodedJWT){
+        return StringUtils.isNotEmpty(decodedJWT.getSubject()) && !isTokenExpired(decodedJWT);
     }
 
+    private boolean isTokenExpired(DecodedJWT decodedJWT) {
+        Date expiration  = decodedJWT.getExpiresAt();
+        return expiration.before(new Date());
+    }
 
-    private String[] getClaimsFromUser(UserPrincipal userPrincipal) {
-        return userPrincipal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toArray(String[]::new);
+    public Authentication getAuthentication(String email, List<GrantedAuthority> authorities, HttpServletRequest request){
+        return authenticationTimer.record(() -> {
+            UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(principalCache.get(email, userService::getUserByEmail), null, authorities);
+            usernamePasswordAuthenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            return usernamePasswordAuthenticationToken;
+        });
     }
 
-    private String[] getClaimsFromToken(String token) {
-        JWTVerifier verifier = getJWTVerifier();
-        return verifier.verify(token).getClaim(AUTHORITIES).asArray(String.class);
+    private Timer tokenTimer(String operation, String outcome) {
+        return Timer.builder("securecapita.token").tag("operation", operation).tag("outcome", outcome).register(meterRegistry);
     }
 
-    private JWTVerifier getJWTVerifier() {
-        JWTVerifier verifier;
 
-        try{
-            Algorithm algorithm = HMAC512(secret);
-            verifier = JWT.require(algorithm).withIssuer(GET_ARRAYS_LLC).build();
-        }catch (JWTVerificationException exception ){
-            throw new JWTVerificationException(TOKEN_CANNOT_BE_VERIFIED);
-        }
-        return verifier;
+    private String[] getClaimsFromUser(UserPrincipal userPrincipal) {
+        return userPrincipal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toArray(String[]::new);
     }
 }
@@ -0,0 +1,9 @@
+package io.getarrays.securecapita.query;
+
+public class EventQuery {
+    // Multi-row insert: the rows are a UNION ALL of parameter tuples, user and event ids are resolved by the join
+    public static final String INSERT_USER_EVENTS_PREFIX = "INSERT INTO UserEvents (user_id, event_id, device, ip_address, created_at) SELECT u.id, e.id, x.device, x.ip_address, x.created_at FROM (";
+    public static final String USER_EVENT_FIRST_ROW = "SELECT ? AS email, ? AS type, ? AS device, ? AS ip_address, ? AS created_at";
+    public static final String USER_EVENT_NEXT_ROW = " UNION ALL SELECT ?, ?, ?, ?, ?";
+    public static final String INSERT_USER_EVENTS_SUFFIX = ") x JOIN Users u ON u.email = x.email JOIN Events e ON e.type = x.type";
+}
@@ -0,0 +1,11 @@
+package io.getarrays.securecapita.query;
+
+public class OutboxQuery {
+    public static final String INSERT_OUTBOX_MESSAGE_QUERY = "INSERT INTO Outbox (channel, recipient, subject, body, dedupe_key) VALUES (:channel, :recipient, :subject, :body, :dedupeKey) ON DUPLICATE KEY UPDATE id = id";
+    public static final String CLAIM_OUTBOX_MESSAGES_QUERY = "UPDATE Outbox SET status = 'SENDING', claimed_by = :claimToken, claimed_at = NOW(), attempts = attempts + 1 WHERE status = 'PENDING' AND next_attempt_at <= NOW() ORDER BY next_attempt_at, id LIMIT :limit";
+    public static final String SELECT_CLAIMED_OUTBOX_MESSAGES_QUERY = "SELECT * FROM Outbox WHERE claimed_by = :claimToken AND status = 'SENDING'";
+    public static final String UPDATE_OUTBOX_SENT_QUERY = "UPDATE Outbox SET status = 'SENT', sent_at = NOW(), claimed_by = NULL, last_error = NULL WHERE id IN (:ids)";
+    public static final String UPDATE_OUTBOX_RETRY_QUERY = "UPDATE Outbox SET status = 'PENDING', next_attempt_at = TIMESTAMPADD(SECOND, :delaySeconds, NOW()), claimed_by = NULL, last_error = :lastError WHERE id = :id";
+    public static final String UPDATE_OUTBOX_FAILED_QUERY = "UPDATE Outbox SET status = 'FAILED', claimed_by = NULL, last_error = :lastError WHERE id = :id";
+    public static final String RELEASE_STALE_OUTBOX_CLAIMS_QUERY = "UPDATE Outbox SET status = 'PENDING', claimed_by = NULL WHERE status = 'SENDING' AND claimed_at < TIMESTAMPADD(SECOND, -:seconds, NOW())";
+}
@@ -0,0 +1,41 @@
+package io.getarrays.securecapita.query;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.lang.reflect.Modifier.isFinal;
+import static java.lang.reflect.Modifier.isPublic;
+import static java.lang.reflect.Modifier.isStatic;
+
+/**
+ * Maps the SQL text of every query constant to its name, e.g. {@code UserQuery.SELECT_USER_BY_EMAIL_QUERY},
+ * so metrics and logs can be labelled without repeating the statement.
+ */
+public final class QueryNames {
+    public static final String UNKNOWN = "other";
+    private static final Class<?>[] QUERY_CLASSES = { UserQuery.class, RoleQuery.class, OutboxQuery.class, SweeperQuery.class, EventQuery.class, RevokedTokenQuery.class };
+    private static final Map<String, String> NAMES_BY_SQL = load();
+
+    private QueryNames() {}
+
+    public static String nameOf(String sql) {
+        return NAMES_BY_SQL.getOrDefault(sql, UNKNOWN);
+    }
+
+    private static Map<String, String> load() {
+        Map<String, String> names = new HashMap<>();
+        for (Class<?> queryClass : QUERY_CLASSES) {
+            for (Field field : queryClass.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (field.getType() != String.class || !isPublic(modifiers) || !isStatic(modifiers) || !isFinal(modifiers)) continue;
+                try {
+                    names.putIfAbsent((String) field.get(null), queryClass.getSimpleName() + "." + field.getName());
+                } catch (IllegalAccessException exception) {
+                    throw new IllegalStateException(exception);
+                }
+            }
+        }
+        return Map.copyOf(names);
+    }
+}
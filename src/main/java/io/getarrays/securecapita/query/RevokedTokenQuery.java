@@ -0,0 +1,8 @@
+package io.getarrays.securecapita.query;
+
+public class RevokedTokenQuery {
+    public static final String UPSERT_REVOKED_TOKEN_QUERY = "INSERT INTO RevokedTokens (token_key, issued_before, expires_at, created_at) VALUES (:tokenKey, :issuedBefore, :expiresAt, :createdAt) ON DUPLICATE KEY UPDATE issued_before = :issuedBefore, expires_at = GREATEST(expires_at, :expiresAt), created_at = :createdAt";
+    public static final String SELECT_ACTIVE_REVOCATIONS_BY_KEYS_QUERY = "SELECT token_key, issued_before FROM RevokedTokens WHERE token_key IN (:tokenKeys) AND expires_at > :now";
+    public static final String SELECT_ACTIVE_REVOKED_TOKEN_KEYS_QUERY = "SELECT token_key FROM RevokedTokens WHERE expires_at > :now";
+    public static final String SELECT_REVOKED_TOKEN_KEYS_SINCE_QUERY = "SELECT token_key FROM RevokedTokens WHERE created_at >= :since AND expires_at > :now";
+}
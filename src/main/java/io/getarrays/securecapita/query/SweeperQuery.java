@@ -0,0 +1,9 @@
+package io.getarrays.securecapita.query;
+
+public class SweeperQuery {
+    public static final String DELETE_EXPIRED_TWO_FACTOR_VERIFICATIONS_QUERY = "DELETE FROM TwoFactorVerifications WHERE expiration_date < NOW() LIMIT :limit";
+    public static final String DELETE_EXPIRED_PASSWORD_VERIFICATIONS_QUERY = "DELETE FROM ResetPasswordVerifications WHERE expiration_date < NOW() LIMIT :limit";
+    public static final String DELETE_OLD_ACCOUNT_VERIFICATIONS_QUERY = "DELETE FROM AccountVerifications WHERE created_at < NOW() - INTERVAL :retentionSeconds SECOND LIMIT :limit";
+    public static final String DELETE_SENT_OUTBOX_MESSAGES_QUERY = "DELETE FROM Outbox WHERE status = 'SENT' AND sent_at < NOW() - INTERVAL :retentionSeconds SECOND LIMIT :limit";
+    public static final String DELETE_EXPIRED_REVOKED_TOKENS_QUERY = "DELETE FROM RevokedTokens WHERE expires_at < UNIX_TIMESTAMP() LIMIT :limit";
+}
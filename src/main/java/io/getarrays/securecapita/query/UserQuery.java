@@ -3,22 +3,25 @@ package io.getarrays.securecapita.query;
 public class UserQuery {
     public static final String INSERT_USER_QUERY = "INSERT INTO Users(first_name, last_name, email, password) VALUES (:firstName, :lastName, :email, :password)";
     public static final String COUNT_USER_EMAIL_QUERY = "SELECT COUNT(*) FROM Users WHERE email = :email";
-    public static final String INSERT_ACCOUNT_VERIFICATION_URL_QUERY = "INSERT INTO AccountVerifications(user_id, url) VALUES (:userId, :url)";
+    public static final String INSERT_ACCOUNT_VERIFICATION_QUERY = "INSERT INTO AccountVerifications(user_id, token_hash) VALUES (:userId, :tokenHash)";
     public static final String SELECT_USER_BY_EMAIL_QUERY = "SELECT * FROM Users WHERE email = :email";
-    public static final String DELETE_VERIFICATION_CODE_BY_USER_ID = "DELETE FROM TwoFactorVerifications WHERE user_id = :id";
-    public static final String INSERT_VERIFICATION_CODE_QUERY = "INSERT INTO TwoFactorVerifications (user_id, code, expiration_date) VALUES (:userId, :code, :expirationDate)";
-    public static final String SELECT_USER_BY_USER_CODE_QUERY = "SELECT * FROM Users WHERE id = ( SELECT user_id FROM TwoFactorVerifications WHERE code = :code)";
-    public static final String DELETE_CODE = "DELETE FROM TwoFactorVerifications WHERE code = :code";
-    public static final String SELECT_CODE_EXPIRATION_QUERY = "SELECT expiration_date < NOW() AS is_expired FROM TwoFactorVerifications WHERE code = :code";
-    public static final String DELETE_PASSWORD_VERIFICATION_BY_USER_ID_QUERY = "DELETE FROM ResetPasswordVerifications WHERE user_id = :userId";
-    public static final String INSERT_PASSWORD_VERIFICATION_QUERY = "INSERT INTO ResetPasswordVerifications (user_id, url, expiration_date) VALUES (:userId, :url, :expirationDate)";
-    public static final String SELECT_EXPIRATION_BY_URL = "SELECT expiration_date < NOW() AS is_expired FROM ResetPasswordVerifications WHERE url = :url";
-    public static final String SELECT_USER_BY_PASSWORD_URL_QUERY = "SELECT * FROM Users WHERE id = (SELECT user_id FROM ResetPasswordVerifications WHERE url = :url)";
-    public static final String UPDATE_USER_PASSWORD_BY_URL_QUERY = "UPDATE Users SET password = :password WHERE id = (SELECT user_id FROM ResetPasswordVerifications WHERE url = :url)";
-    public static final String DELETE_VERIFICATION_BY_URL_QUERY = "DELETE FROM ResetPasswordVerifications WHERE url = :url";
-    public static final String SELECT_USER_BY_ACCOUNT_URL_QUERY = "SELECT * FROM Users WHERE id = (SELECT user_id FROM AccountVerifications WHERE url = :url)";
+    public static final String SELECT_USER_WITH_ROLE_BY_EMAIL_QUERY = "SELECT u.*, ur.role_id FROM Users u JOIN UserRoles ur ON ur.user_id = u.id WHERE u.email = :email";
+    public static final String UPSERT_VERIFICATION_CODE_QUERY = "INSERT INTO TwoFactorVerifications (user_id, code, expiration_date) VALUES (:userId, :code, NOW() + INTERVAL :ttlSeconds SECOND) ON DUPLICATE KEY UPDATE code = :code, expiration_date = NOW() + INTERVAL :ttlSeconds SECOND";
+    public static final String DELETE_UNEXPIRED_CODE_QUERY = "DELETE FROM TwoFactorVerifications WHERE user_id = :userId AND code = :code AND expiration_date >= NOW()";
+    public static final String DELETE_CODE_BY_USER_ID_AND_CODE_QUERY = "DELETE FROM TwoFactorVerifications WHERE user_id = :userId AND code = :code";
+    public static final String UPSERT_PASSWORD_VERIFICATION_QUERY = "INSERT INTO ResetPasswordVerifications (user_id, token_hash, expiration_date) VALUES (:userId, :tokenHash, NOW() + INTERVAL :ttlSeconds SECOND) ON DUPLICATE KEY UPDATE token_hash = :tokenHash, expiration_date = NOW() + INTERVAL :ttlSeconds SECOND";
+    public static final String SELECT_USER_BY_PASSWORD_TOKEN_HASH_QUERY = "SELECT u.*, v.expiration_date < NOW() AS is_expired FROM ResetPasswordVerifications v JOIN Users u ON u.id = v.user_id WHERE v.token_hash = :tokenHash";
+    public static final String UPDATE_USER_PASSWORD_BY_TOKEN_HASH_QUERY = "UPDATE Users u JOIN ResetPasswordVerifications v ON v.user_id = u.id SET u.password = :password, v.expiration_date = NOW() - INTERVAL 1 SECOND WHERE v.token_hash = :tokenHash AND v.expiration_date >= NOW()";
+    public static final String SELECT_USER_BY_ACCOUNT_TOKEN_HASH_QUERY = "SELECT u.* FROM AccountVerifications v JOIN Users u ON u.id = v.user_id WHERE v.token_hash = :tokenHash";
 
     public static final String UPDATE_USER_ENABLED_QUERY = "UPDATE Users SET enabled = :enabled WHERE id = :id";
+    public static final String LOCK_USER_UNTIL_QUERY = "UPDATE Users SET non_locked = FALSE, locked_until = TIMESTAMPADD(SECOND, :seconds, NOW()) WHERE email = :email AND (non_locked = TRUE OR locked_until IS NOT NULL)";
+    public static final String SELECT_EXPIRED_LOCK_EMAILS_QUERY = "SELECT email FROM Users WHERE non_locked = FALSE AND locked_until <= NOW()";
+    public static final String UNLOCK_USERS_QUERY = "UPDATE Users SET non_locked = TRUE, locked_until = NULL WHERE email IN (:emails) AND locked_until <= NOW()";
+    public static final String SELECT_EXISTING_EMAILS_QUERY = "SELECT email FROM Users WHERE email IN (:emails)";
+    public static final String SELECT_USER_IDS_BY_EMAILS_QUERY = "SELECT id, email FROM Users WHERE email IN (:emails)";
+    public static final String SELECT_USER_SUMMARIES_QUERY = "SELECT u.id, u.first_name, u.last_name, u.email, u.address, u.phone, u.title, u.image_url, u.enabled, u.non_locked, u.using_mfa, u.created_at, ur.role_id FROM Users u LEFT JOIN UserRoles ur ON ur.user_id = u.id ORDER BY u.id";
+    public static final String SELECT_USER_SUMMARIES_AFTER_ID_QUERY = "SELECT u.id, u.first_name, u.last_name, u.email, u.address, u.phone, u.title, u.image_url, u.enabled, u.non_locked, u.using_mfa, u.created_at, ur.role_id FROM Users u LEFT JOIN UserRoles ur ON ur.user_id = u.id WHERE u.id > :afterId ORDER BY u.id LIMIT :limit";
 
 
 
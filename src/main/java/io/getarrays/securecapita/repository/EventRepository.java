@@ -0,0 +1,10 @@
+package io.getarrays.securecapita.repository;
+
+import io.getarrays.securecapita.domain.UserEvent;
+
+import java.util.List;
+
+public interface EventRepository {
+    /* Events whose email matches no user are skipped */
+    int addUserEvents(List<UserEvent> events);
+}
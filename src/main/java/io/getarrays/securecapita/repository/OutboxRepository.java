@@ -0,0 +1,18 @@
+package io.getarrays.securecapita.repository;
+
+import io.getarrays.securecapita.domain.OutboxMessage;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxRepository {
+    /* Must be called inside the transaction that writes the row the message is about */
+    void enqueue(OutboxMessage message);
+    void enqueueAll(List<OutboxMessage> messages);
+    List<OutboxMessage> claim(String claimToken, int limit);
+    void markSent(Collection<Long> ids);
+    void reschedule(Long id, long delaySeconds, String lastError);
+    void markFailed(Long id, String lastError);
+    int releaseStaleClaims(Duration claimTimeout);
+}
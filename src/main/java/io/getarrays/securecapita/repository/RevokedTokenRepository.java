@@ -0,0 +1,15 @@
+package io.getarrays.securecapita.repository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/* Times are epoch seconds, the same unit as the iat and exp claims */
+public interface RevokedTokenRepository {
+    /* issuedBefore is null for a single token and the revocation time for a whole subject */
+    void revoke(String tokenKey, Long issuedBefore, long expiresAt, long now);
+    /* Unexpired revocations among the keys, mapped to their issuedBefore (null for single tokens) */
+    Map<String, Long> findActive(Collection<String> tokenKeys, long now);
+    void forEachActiveKey(long now, Consumer<String> consumer);
+    void forEachKeySince(long since, long now, Consumer<String> consumer);
+}
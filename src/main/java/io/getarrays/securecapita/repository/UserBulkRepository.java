@@ -0,0 +1,20 @@
+package io.getarrays.securecapita.repository;
+
+import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.dto.UserDTO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public interface UserBulkRepository {
+    /* Streams every user in id order without materialising the table; the consumer sees one row at a time */
+    void streamUsers(Consumer<UserDTO> consumer);
+
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    /* Users must carry already hashed passwords; returns the failure reason of each user that could not be created, by email */
+    Map<String, String> createUsers(List<User> users, String verificationUrlPrefix);
+}
@@ -3,13 +3,14 @@ package io.getarrays.securecapita.repository;
 import io.getarrays.securecapita.domain.User;
 import io.getarrays.securecapita.dto.UserDTO;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.List;
 
 public interface UserRepository <T extends User>{
     /*Basic CRUD operation*/
 
     T create(T data);
-    Collection<T> list(int page, int pageSize);
     T get(Long id);
     T update(T data);
     Boolean delete(Long id);
@@ -28,4 +29,11 @@ public interface UserRepository <T extends User>{
     void renewPassword(String key, String password, String confirmPassword);
 
     T verifyAccountKey(String key);
+
+    Collection<UserDTO> listUsersAfter(long afterId, int limit);
+
+    void lockUntil(String email, Duration duration);
+
+    /* Lifts every lock whose locked_until has passed and returns the emails that were unlocked */
+    List<String> unlockExpiredLocks();
 }
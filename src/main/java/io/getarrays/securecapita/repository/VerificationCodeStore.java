@@ -0,0 +1,15 @@
+package io.getarrays.securecapita.repository;
+
+import io.getarrays.securecapita.enumeration.VerificationResult;
+
+/**
+ * Holds the one-time MFA code of each user. Selected with {@code verification.code-store}: {@code jdbc}
+ * (default, TwoFactorVerifications table) or {@code memory} (single instance deployments only).
+ */
+public interface VerificationCodeStore {
+    /* Replaces any code the user already had */
+    void save(Long userId, String code);
+
+    /* Checks and removes the code in one step; of concurrent calls with the right code only one gets VALID */
+    VerificationResult consume(Long userId, String code);
+}
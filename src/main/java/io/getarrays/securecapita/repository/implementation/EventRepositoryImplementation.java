@@ -0,0 +1,37 @@
+package io.getarrays.securecapita.repository.implementation;
+
+import io.getarrays.securecapita.domain.UserEvent;
+import io.getarrays.securecapita.repository.EventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static io.getarrays.securecapita.query.EventQuery.*;
+
+@Repository
+@RequiredArgsConstructor
+public class EventRepositoryImplementation implements EventRepository {
+    private final NamedParameterJdbcTemplate jdbc;
+
+    @Override
+    public int addUserEvents(List<UserEvent> events) {
+        if(events.isEmpty()) return 0;
+        StringBuilder sql = new StringBuilder(INSERT_USER_EVENTS_PREFIX.length() + INSERT_USER_EVENTS_SUFFIX.length() + events.size() * USER_EVENT_NEXT_ROW.length() + USER_EVENT_FIRST_ROW.length());
+        sql.append(INSERT_USER_EVENTS_PREFIX).append(USER_EVENT_FIRST_ROW);
+        Object[] parameters = new Object[events.size() * 5];
+        int index = 0;
+        for (UserEvent event : events) {
+            if(index > 0) sql.append(USER_EVENT_NEXT_ROW);
+            parameters[index++] = event.getEmail();
+            parameters[index++] = event.getType().name();
+            parameters[index++] = event.getDevice();
+            parameters[index++] = event.getIpAddress();
+            parameters[index++] = Timestamp.valueOf(event.getCreatedAt());
+        }
+        sql.append(INSERT_USER_EVENTS_SUFFIX);
+        return jdbc.getJdbcTemplate().update(sql.toString(), parameters);
+    }
+}
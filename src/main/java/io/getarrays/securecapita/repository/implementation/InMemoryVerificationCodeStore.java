@@ -0,0 +1,71 @@
+package io.getarrays.securecapita.repository.implementation;
+
+import io.getarrays.securecapita.enumeration.VerificationResult;
+import io.getarrays.securecapita.repository.VerificationCodeStore;
+import io.getarrays.securecapita.utils.HashedTimingWheel;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Repository;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static io.getarrays.securecapita.enumeration.VerificationResult.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Codes live in a map keyed by user id. Consuming is a conditional remove of the exact entry that was
+ * read, so concurrent attempts with the same code race on one CAS and only the winner gets VALID.
+ * A hashed timing wheel reclaims codes nobody consumed; expiry itself is checked on every consume.
+ */
+@Repository
+@ConditionalOnProperty(name = "verification.code-store", havingValue = "memory")
+public class InMemoryVerificationCodeStore implements VerificationCodeStore {
+    private final ConcurrentHashMap<Long, Entry> codes = new ConcurrentHashMap<>();
+    private final HashedTimingWheel<Entry> wheel;
+    private final ScheduledExecutorService ticker;
+    private final Duration ttl;
+
+    public InMemoryVerificationCodeStore(@Value("${verification.code-ttl:24h}") Duration ttl,
+                                         @Value("${verification.wheel.tick:1s}") Duration tick,
+                                         @Value("${verification.wheel.size:512}") int wheelSize) {
+        this.ttl = ttl;
+        this.wheel = new HashedTimingWheel<>(tick, wheelSize, entry -> codes.remove(entry.userId(), entry));
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("verification-code-wheel-");
+        threadFactory.setDaemon(true);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this.ticker.scheduleAtFixedRate(wheel::advance, tick.toNanos(), tick.toNanos(), NANOSECONDS);
+    }
+
+    @Override
+    public void save(Long userId, String code) {
+        Entry entry = new Entry(userId, code, System.nanoTime() + ttl.toNanos());
+        codes.put(userId, entry);
+        wheel.schedule(entry, ttl);
+    }
+
+    @Override
+    public VerificationResult consume(Long userId, String code) {
+        Entry entry = codes.get(userId);
+        if(entry == null || code == null || !MessageDigest.isEqual(entry.code().getBytes(UTF_8), code.getBytes(UTF_8))) return INVALID;
+        if(!codes.remove(userId, entry)) return INVALID;
+        return System.nanoTime() - entry.expiresAtNanos() >= 0 ? EXPIRED : VALID;
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private record Entry(Long userId, String code, long expiresAtNanos) {}
+}
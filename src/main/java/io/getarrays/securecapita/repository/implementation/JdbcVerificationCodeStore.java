@@ -0,0 +1,39 @@
+package io.getarrays.securecapita.repository.implementation;
+
+import io.getarrays.securecapita.enumeration.VerificationResult;
+import io.getarrays.securecapita.repository.VerificationCodeStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+
+import static io.getarrays.securecapita.enumeration.VerificationResult.*;
+import static io.getarrays.securecapita.query.UserQuery.*;
+import static java.util.Map.of;
+
+@Repository
+@ConditionalOnProperty(name = "verification.code-store", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcVerificationCodeStore implements VerificationCodeStore {
+    private final NamedParameterJdbcTemplate jdbc;
+    private final Duration ttl;
+
+    public JdbcVerificationCodeStore(NamedParameterJdbcTemplate jdbc, @Value("${verification.code-ttl:24h}") Duration ttl) {
+        this.jdbc = jdbc;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public void save(Long userId, String code) {
+        // One atomic statement on the user_id unique key replaces the previous code, if any
+        jdbc.update(UPSERT_VERIFICATION_CODE_QUERY, of("userId", userId, "code", code, "ttlSeconds", ttl.toSeconds()));
+    }
+
+    @Override
+    public VerificationResult consume(Long userId, String code) {
+        // The row lock taken by DELETE makes this atomic: only one concurrent caller sees one affected row
+        if(jdbc.update(DELETE_UNEXPIRED_CODE_QUERY, of("userId", userId, "code", code)) == 1) return VALID;
+        return jdbc.update(DELETE_CODE_BY_USER_ID_AND_CODE_QUERY, of("userId", userId, "code", code)) == 1 ? EXPIRED : INVALID;
+    }
+}
@@ -0,0 +1,82 @@
+package io.getarrays.securecapita.repository.implementation;
+
+import io.getarrays.securecapita.domain.OutboxMessage;
+import io.getarrays.securecapita.repository.OutboxRepository;
+import io.getarrays.securecapita.rowmapper.OutboxMessageRowMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static io.getarrays.securecapita.query.OutboxQuery.*;
+import static java.util.Map.of;
+import static org.apache.commons.lang3.StringUtils.abbreviate;
+
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRepositoryImplementation implements OutboxRepository {
+    private static final int MAX_ERROR_LENGTH = 255;
+    private final NamedParameterJdbcTemplate jdbc;
+
+    @Override
+    public void enqueue(OutboxMessage message) {
+        jdbc.update(INSERT_OUTBOX_MESSAGE_QUERY, getParametersSource(message));
+    }
+
+    @Override
+    public void enqueueAll(List<OutboxMessage> messages) {
+        if(messages.isEmpty()) return;
+        jdbc.batchUpdate(INSERT_OUTBOX_MESSAGE_QUERY, messages.stream().map(this::getParametersSource).toArray(SqlParameterSource[]::new));
+    }
+
+    @Override
+    public List<OutboxMessage> claim(String claimToken, int limit) {
+        int claimed = jdbc.update(CLAIM_OUTBOX_MESSAGES_QUERY, of("claimToken", claimToken, "limit", limit));
+        if(claimed == 0) return List.of();
+        return jdbc.query(SELECT_CLAIMED_OUTBOX_MESSAGES_QUERY, of("claimToken", claimToken), new OutboxMessageRowMapper());
+    }
+
+    @Override
+    public void markSent(Collection<Long> ids) {
+        if(ids.isEmpty()) return;
+        jdbc.update(UPDATE_OUTBOX_SENT_QUERY, of("ids", ids));
+    }
+
+    @Override
+    public void reschedule(Long id, long delaySeconds, String lastError) {
+        jdbc.update(UPDATE_OUTBOX_RETRY_QUERY, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("delaySeconds", delaySeconds)
+                .addValue("lastError", abbreviate(lastError, MAX_ERROR_LENGTH)));
+    }
+
+    @Override
+    public void markFailed(Long id, String lastError) {
+        jdbc.update(UPDATE_OUTBOX_FAILED_QUERY, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("lastError", abbreviate(lastError, MAX_ERROR_LENGTH)));
+    }
+
+    @Override
+    public int releaseStaleClaims(Duration claimTimeout) {
+        int released = jdbc.update(RELEASE_STALE_OUTBOX_CLAIMS_QUERY, of("seconds", claimTimeout.toSeconds()));
+        if(released > 0) log.warn("Released {} outbox messages claimed by a dispatcher that did not finish", released);
+        return released;
+    }
+
+    private SqlParameterSource getParametersSource(OutboxMessage message) {
+        return new MapSqlParameterSource()
+                .addValue("channel", message.getChannel().name())
+                .addValue("recipient", message.getRecipient())
+                .addValue("subject", message.getSubject())
+                .addValue("body", message.getBody())
+                .addValue("dedupeKey", message.getDedupeKey());
+    }
+}
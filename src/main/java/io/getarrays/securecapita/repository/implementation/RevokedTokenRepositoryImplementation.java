@@ -0,0 +1,54 @@
+package io.getarrays.securecapita.repository.implementation;
+
+import io.getarrays.securecapita.repository.RevokedTokenRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static io.getarrays.securecapita.query.RevokedTokenQuery.*;
+import static java.util.Map.of;
+
+@Repository
+@RequiredArgsConstructor
+public class RevokedTokenRepositoryImplementation implements RevokedTokenRepository {
+    private final NamedParameterJdbcTemplate jdbc;
+
+    @Override
+    public void revoke(String tokenKey, Long issuedBefore, long expiresAt, long now) {
+        jdbc.update(UPSERT_REVOKED_TOKEN_QUERY, new MapSqlParameterSource()
+                .addValue("tokenKey", tokenKey)
+                .addValue("issuedBefore", issuedBefore)
+                .addValue("expiresAt", expiresAt)
+                .addValue("createdAt", now));
+    }
+
+    @Override
+    public Map<String, Long> findActive(Collection<String> tokenKeys, long now) {
+        Map<String, Long> revocations = new HashMap<>();
+        jdbc.query(SELECT_ACTIVE_REVOCATIONS_BY_KEYS_QUERY, of("tokenKeys", tokenKeys, "now", now), resultSet -> {
+            long issuedBefore = resultSet.getLong("issued_before");
+            revocations.put(resultSet.getString("token_key"), resultSet.wasNull() ? null : issuedBefore);
+        });
+        return revocations;
+    }
+
+    @Override
+    public void forEachActiveKey(long now, Consumer<String> consumer) {
+        jdbc.query(SELECT_ACTIVE_REVOKED_TOKEN_KEYS_QUERY, of("now", now), resultSet -> {
+            consumer.accept(resultSet.getString("token_key"));
+        });
+    }
+
+    @Override
+    public void forEachKeySince(long since, long now, Consumer<String> consumer) {
+        jdbc.query(SELECT_REVOKED_TOKEN_KEYS_SINCE_QUERY, of("since", since, "now", now), resultSet -> {
+            consumer.accept(resultSet.getString("token_key"));
+        });
+    }
+}
@@ -1,9 +1,12 @@
 package io.getarrays.securecapita.repository.implementation;
 
+import io.getarrays.securecapita.cache.RecentWriteCache;
+import io.getarrays.securecapita.cache.RoleCatalog;
+import io.getarrays.securecapita.cache.UserPrincipalCache;
+import io.getarrays.securecapita.datasource.ReadOnlyRoute;
 import io.getarrays.securecapita.domain.Role;
 import io.getarrays.securecapita.exception.ApiException;
 import io.getarrays.securecapita.repository.RoleRepository;
-import io.getarrays.securecapita.rowmapper.RoleRowMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
@@ -25,6 +28,9 @@ import static java.util.Objects.requireNonNull;
 public class RoleRepositoryImplementation implements RoleRepository<Role> {
 
     private final NamedParameterJdbcTemplate jdbc;
+    private final UserPrincipalCache principalCache;
+    private final RoleCatalog roleCatalog;
+    private final RecentWriteCache recentWrites;
 
     @Override
     public Role create(Role data) {
@@ -54,13 +60,12 @@ public class RoleRepositoryImplementation implements RoleRepository<Role> {
     @Override
     public void addRoleToUser(Long userId, String roleName) {
         log.info("Adding role {} to user id: {}", roleName,userId);
+        Role role = roleCatalog.getRoleByName(roleName);
+        if(role == null) throw new ApiException("No role found by name: " + roleName);
         //Save new User
         try {
-            Role role = jdbc.queryForObject(SELECT_ROLE_BY_NAME_QUERY, Map.of("name", roleName), new RoleRowMapper());
-            jdbc.update(INSERT_ROLE_TO_USER, Map.of("userId", userId, "roleId", requireNonNull(role).getId()));
-        }catch (EmptyResultDataAccessException exception){
-            throw new ApiException("No role found by name: " + ROLE_USER.name());
-
+            jdbc.update(INSERT_ROLE_TO_USER, Map.of("userId", userId, "roleId", role.getId()));
+            recentWrites.markWritten(userId);
         }catch (Exception exception){
             throw new ApiException("An error occurred. Please try again");
 
@@ -69,10 +74,12 @@ public class RoleRepositoryImplementation implements RoleRepository<Role> {
     }
 
     @Override
+    @ReadOnlyRoute(stickyKey = 0)
     public Role getRoleByUserId(Long userId) {
         log.info("Adding role for user id: {}", userId);
         try {
-            return jdbc.queryForObject(SELECT_ROLE_BY_ID_QUERY, Map.of("id", userId), new RoleRowMapper());
+            Long roleId = jdbc.queryForObject(SELECT_ROLE_ID_BY_USER_ID_QUERY, Map.of("userId", userId), Long.class);
+            return requireNonNull(roleCatalog.getRoleById(roleId));
         } catch (EmptyResultDataAccessException exception) {
             throw new ApiException("No role found by name: " + ROLE_USER.name());
         } catch (Exception exception) {
@@ -88,6 +95,16 @@ public class RoleRepositoryImplementation implements RoleRepository<Role> {
 
     @Override
     public void updateUserRole(Long userId, String roleName) {
-
+        log.info("Updating role for user id: {}", userId);
+        Role role = roleCatalog.getRoleByName(roleName);
+        if(role == null) throw new ApiException("No role found by name: " + roleName);
+        try {
+            jdbc.update(UPDATE_USER_ROLE_QUERY, Map.of("roleId", role.getId(), "userId", userId));
+            recentWrites.markWritten(userId);
+            principalCache.invalidate(userId);
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw new ApiException("An error occurred. Please try again.");
+        }
     }
 }
@@ -0,0 +1,133 @@
+package io.getarrays.securecapita.repository.implementation;
+
+import io.getarrays.securecapita.cache.RoleCatalog;
+import io.getarrays.securecapita.domain.OutboxMessage;
+import io.getarrays.securecapita.domain.Role;
+import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.dto.UserDTO;
+import io.getarrays.securecapita.exception.ApiException;
+import io.getarrays.securecapita.repository.OutboxRepository;
+import io.getarrays.securecapita.repository.UserBulkRepository;
+import io.getarrays.securecapita.rowmapper.UserSummaryRowMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static io.getarrays.securecapita.enumeration.RoleType.ROLE_USER;
+import static io.getarrays.securecapita.query.RoleQuery.INSERT_ROLE_TO_USER;
+import static io.getarrays.securecapita.query.UserQuery.*;
+import static io.getarrays.securecapita.utils.MessageUtils.accountVerificationEmail;
+import static io.getarrays.securecapita.utils.VerificationKeyUtils.hashKey;
+import static io.getarrays.securecapita.utils.VerificationKeyUtils.newKey;
+import static java.util.Map.of;
+
+@Repository
+@Slf4j
+public class UserBulkRepositoryImplementation implements UserBulkRepository {
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final RoleCatalog roleCatalog;
+    private final OutboxRepository outboxRepository;
+    private final JdbcTemplate exportJdbc;
+
+    public UserBulkRepositoryImplementation(NamedParameterJdbcTemplate jdbc,
+                                            PlatformTransactionManager transactionManager,
+                                            RoleCatalog roleCatalog,
+                                            OutboxRepository outboxRepository,
+                                            // Exports hold a connection for as long as the client keeps reading, so they get their own small pool
+                                            @Qualifier("exportDataSource") DataSource exportDataSource,
+                                            @Value("${export.fetch-size:-2147483648}") int fetchSize) {
+        this.jdbc = jdbc;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.roleCatalog = roleCatalog;
+        this.outboxRepository = outboxRepository;
+        this.exportJdbc = new JdbcTemplate(exportDataSource);
+        // Integer.MIN_VALUE makes MySQL Connector/J stream a forward-only, read-only result set row by row
+        this.exportJdbc.setFetchSize(fetchSize);
+    }
+
+    @Override
+    public void streamUsers(Consumer<UserDTO> consumer) {
+        log.info("Streaming users for export");
+        UserSummaryRowMapper rowMapper = new UserSummaryRowMapper(roleCatalog);
+        exportJdbc.query(SELECT_USER_SUMMARIES_QUERY, resultSet -> {
+            consumer.accept(rowMapper.mapRow(resultSet, resultSet.getRow()));
+        });
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        if(emails.isEmpty()) return Set.of();
+        return new HashSet<>(jdbc.queryForList(SELECT_EXISTING_EMAILS_QUERY, of("emails", emails), String.class));
+    }
+
+    @Override
+    public Map<String, String> createUsers(List<User> users, String verificationUrlPrefix) {
+        if(users.isEmpty()) return Map.of();
+        Role role = roleCatalog.getRoleByName(ROLE_USER.name());
+        if(role == null) throw new ApiException("No role found by name: " + ROLE_USER.name());
+        try {
+            // One transaction and three batches for the whole chunk
+            transactionTemplate.executeWithoutResult(status -> insertBatch(users, role, verificationUrlPrefix));
+            return Map.of();
+        } catch (Exception exception) {
+            // Something in the chunk is bad: the batch was rolled back, retry row by row to isolate it
+            log.warn("Batch insert of {} users failed, falling back to single inserts: {}", users.size(), exception.getMessage());
+            return insertOneByOne(users, role, verificationUrlPrefix);
+        }
+    }
+
+    private void insertBatch(List<User> users, Role role, String verificationUrlPrefix) {
+        jdbc.batchUpdate(INSERT_USER_QUERY, users.stream().map(this::getParametersSource).toArray(SqlParameterSource[]::new));
+        Map<String, User> usersByEmail = new HashMap<>();
+        users.forEach(user -> usersByEmail.put(user.getEmail(), user));
+        jdbc.query(SELECT_USER_IDS_BY_EMAILS_QUERY, of("emails", usersByEmail.keySet()), resultSet -> {
+            User user = usersByEmail.get(resultSet.getString("email").toLowerCase());
+            if(user != null) user.setId(resultSet.getLong("id"));
+        });
+        jdbc.batchUpdate(INSERT_ROLE_TO_USER, users.stream()
+                .map(user -> new MapSqlParameterSource().addValue("userId", user.getId()).addValue("roleId", role.getId()))
+                .toArray(SqlParameterSource[]::new));
+        List<SqlParameterSource> verifications = new ArrayList<>(users.size());
+        List<OutboxMessage> messages = new ArrayList<>(users.size());
+        for (User user : users) {
+            String key = newKey();
+            verifications.add(new MapSqlParameterSource().addValue("userId", user.getId()).addValue("tokenHash", hashKey(key)));
+            messages.add(accountVerificationEmail(user, verificationUrlPrefix + key));
+        }
+        jdbc.batchUpdate(INSERT_ACCOUNT_VERIFICATION_QUERY, verifications.toArray(SqlParameterSource[]::new));
+        outboxRepository.enqueueAll(messages);
+    }
+
+    private Map<String, String> insertOneByOne(List<User> users, Role role, String verificationUrlPrefix) {
+        Map<String, String> failures = new HashMap<>();
+        for (User user : users) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertBatch(List.of(user), role, verificationUrlPrefix));
+            } catch (Exception exception) {
+                log.error(exception.getMessage());
+                failures.put(user.getEmail(), "Could not create this user. Please check the row and try again");
+            }
+        }
+        return failures;
+    }
+
+    private SqlParameterSource getParametersSource(User user) {
+        return new MapSqlParameterSource()
+                .addValue("firstName", user.getFirstName())
+                .addValue("lastName", user.getLastName())
+                .addValue("email", user.getEmail())
+                .addValue("password", user.getPassword());
+    }
+}
@@ -1,17 +1,26 @@
 package io.getarrays.securecapita.repository.implementation;
 
+import io.getarrays.securecapita.cache.RecentWriteCache;
+import io.getarrays.securecapita.cache.RoleCatalog;
+import io.getarrays.securecapita.cache.UserPrincipalCache;
 import io.getarrays.securecapita.domain.Role;
 import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.datasource.ReadOnlyRoute;
 import io.getarrays.securecapita.domain.UserPrincipal;
 import io.getarrays.securecapita.dto.UserDTO;
-import io.getarrays.securecapita.enumeration.VerificationType;
+import io.getarrays.securecapita.enumeration.VerificationResult;
 import io.getarrays.securecapita.exception.ApiException;
+import io.getarrays.securecapita.repository.OutboxRepository;
 import io.getarrays.securecapita.repository.RoleRepository;
 import io.getarrays.securecapita.repository.UserRepository;
+import io.getarrays.securecapita.repository.VerificationCodeStore;
+import io.getarrays.securecapita.service.EventService;
+import io.getarrays.securecapita.service.TokenRevocationService;
+import io.getarrays.securecapita.rowmapper.UserPrincipalRowMapper;
 import io.getarrays.securecapita.rowmapper.UserRowMapper;
+import io.getarrays.securecapita.rowmapper.UserSummaryRowMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.time.DateFormatUtils;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -23,58 +32,72 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.time.Duration;
 import java.util.Collection;
-import java.util.Date;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
+import static io.getarrays.securecapita.enumeration.EventType.PASSWORD_UPDATE;
 import static io.getarrays.securecapita.enumeration.RoleType.ROLE_USER;
 import static io.getarrays.securecapita.enumeration.VerificationType.ACCOUNT;
 import static io.getarrays.securecapita.enumeration.VerificationType.PASSWORD;
 import static io.getarrays.securecapita.query.UserQuery.*;
+import static io.getarrays.securecapita.utils.MessageUtils.*;
+import static io.getarrays.securecapita.utils.VerificationKeyUtils.hashKey;
+import static io.getarrays.securecapita.utils.VerificationKeyUtils.newKey;
 import static java.util.Map.of;
 import static java.util.Objects.requireNonNull;
 import static org.apache.commons.lang3.RandomStringUtils.randomAlphabetic;
-import static org.apache.commons.lang3.time.DateFormatUtils.format;
-import static org.apache.commons.lang3.time.DateUtils.addDays;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 @Repository
 @RequiredArgsConstructor
 @Slf4j
 public class UserRepositoryImplementation implements UserRepository<User>, UserDetailsService {
 
-    private static final String DATE_FORMAT = "yyyy-MM-dd hh:mm:ss";
+    private static final Duration PASSWORD_LINK_TTL = Duration.ofDays(1);
     private final NamedParameterJdbcTemplate jdbc;
     private final RoleRepository<Role> roleRepository;
     private final BCryptPasswordEncoder encoder;
+    private final UserPrincipalCache principalCache;
+    private final RoleCatalog roleCatalog;
+    private final OutboxRepository outboxRepository;
+    private final VerificationCodeStore verificationCodeStore;
+    private final EventService eventService;
+    private final RecentWriteCache recentWrites;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
+    @Transactional
     public User create(User user){
         // Check the email is unique
         if(getEmailCount(user.getEmail().trim().toLowerCase() ) > 0){
             throw new ApiException("Email already in use. Please use a different email and try again");
         }
+        // The password arrives hashed, so the transaction only covers the inserts and the outbox row
+        SqlParameterSource parameters = getParametersSource(user);
         //Save new User
         try {
             KeyHolder holder = new GeneratedKeyHolder();
-            SqlParameterSource parameters = getParametersSource(user);
-            jdbc.update(INSERT_USER_QUERY,parameters,holder);
+            jdbc.update(INSERT_USER_QUERY,parameters,holder,new String[]{"id"});
             // reset ID on the user
             user.setId(requireNonNull(holder.getKey()).longValue());
 
             // Add role the user
             roleRepository.addRoleToUser(user.getId(), ROLE_USER.name());
 
-            // Send verification URL
-            String verificationurl = getVerificationUrl(UUID.randomUUID().toString(), ACCOUNT.getType());
-            //Sacve URL in verification table
-            jdbc.update(INSERT_ACCOUNT_VERIFICATION_URL_QUERY, Map.of("userId", user.getId(), "url", verificationurl));
-            //Send email to user with verification URL
-            //emailService.sendVerificationUrl(user.getFirstName(),user.getEmail(),verificationurl,ACCOUNT);
+            // Send verification URL, only the hash of its key is stored
+            String key = newKey();
+            String verificationurl = getVerificationUrl(key, ACCOUNT.getType());
+            jdbc.update(INSERT_ACCOUNT_VERIFICATION_QUERY, Map.of("userId", user.getId(), "tokenHash", hashKey(key)));
+            //Queue the email with the verification URL, it is sent after commit by the OutboxDispatcher
+            outboxRepository.enqueue(accountVerificationEmail(user, verificationurl));
             user.setEnabled(true);
             user.setNotLocked(true);
+            recentWrites.markWritten(user.getEmail());
             //Return the newly created user
             return user;
         }catch (Exception exception){
@@ -88,8 +111,29 @@ public class UserRepositoryImplementation implements UserRepository<User>, UserD
 
 
     @Override
-    public Collection<User> list(int page, int pageSize) {
-        return null;
+    @ReadOnlyRoute
+    public Collection<UserDTO> listUsersAfter(long afterId, int limit) {
+        // Keyset pagination: seeks on the primary key, so every page costs the same
+        try {
+            return jdbc.query(SELECT_USER_SUMMARIES_AFTER_ID_QUERY, of("afterId", afterId, "limit", limit), new UserSummaryRowMapper(roleCatalog));
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw new ApiException("An error occurred. Please try again.");
+        }
+    }
+
+    @Override
+    public void lockUntil(String email, Duration duration) {
+        jdbc.update(LOCK_USER_UNTIL_QUERY, of("email", email, "seconds", duration.toSeconds()));
+        recentWrites.markWritten(email);
+    }
+
+    @Override
+    public List<String> unlockExpiredLocks() {
+        List<String> emails = jdbc.queryForList(SELECT_EXPIRED_LOCK_EMAILS_QUERY, Map.of(), String.class);
+        if(!emails.isEmpty()) jdbc.update(UNLOCK_USERS_QUERY, of("emails", emails));
+        emails.forEach(recentWrites::markWritten);
+        return emails;
     }
 
     @Override
@@ -114,26 +158,21 @@ public class UserRepositoryImplementation implements UserRepository<User>, UserD
 
 
     @Override
+    @ReadOnlyRoute(stickyKey = 0)
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = getUserByEmail(email);
-        if(email == null){
+        // One statement for user and role id, the role itself comes from the catalog
+        try {
+            UserPrincipal userPrincipal = jdbc.queryForObject(SELECT_USER_WITH_ROLE_BY_EMAIL_QUERY, of("email", email), new UserPrincipalRowMapper(roleCatalog));
+            log.info("User found in the database: {}", email);
+            return userPrincipal;
+        } catch (EmptyResultDataAccessException exception) {
             log.error("User not found in the database");
             throw new UsernameNotFoundException("User not found in the database");
-
-        }else {
-            log.info("User found in the database: {}", email);
-          /*  UserPrincipal userPrincipal = new UserPrincipal(user,roleRepository.getRoleByUserId(user.getId()).getPermission());
-            return new org.springframework.security.core.userdetails.User(
-                    user.getEmail(),
-                    user.getPassword(),
-                    userPrincipal.getAuthorities()
-            );*/
-
-            return new UserPrincipal(user,roleRepository.getRoleByUserId(user.getId()));
         }
     }
 
     @Override
+    @ReadOnlyRoute(stickyKey = 0)
     public User getUserByEmail(String email) {
         try {
             User user = jdbc.queryForObject(SELECT_USER_BY_EMAIL_QUERY, of("email", email), new UserRowMapper());
@@ -147,14 +186,13 @@ public class UserRepositoryImplementation implements UserRepository<User>, UserD
     }
 
     @Override
+    @Transactional
     public void sendVerificationCode(UserDTO user) {
-         String expirationDate = DateFormatUtils.format(addDays(new Date(),1), DATE_FORMAT);
          String verificationCode = randomAlphabetic(8).toUpperCase();
 
         try {
-            jdbc.update(DELETE_VERIFICATION_CODE_BY_USER_ID, of("id", user.getId()));
-            jdbc.update(INSERT_VERIFICATION_CODE_QUERY, of("userId", user.getId(), "code",verificationCode, "expirationDate", expirationDate));
-            //sendSMS(user.getPhone(), "FROM: SecureCapita \nVerification code\n" + verificationCode);
+            verificationCodeStore.save(user.getId(), verificationCode);
+            if(isNotBlank(user.getPhone())) outboxRepository.enqueue(verificationCodeSms(user, verificationCode));
             log.info("Verification Code: {}", verificationCode);
         } catch (Exception exception) {
             log.error(exception.getMessage());
@@ -164,40 +202,43 @@ public class UserRepositoryImplementation implements UserRepository<User>, UserD
 
     @Override
     public User verifyCode(String email, String code) {
-        if(isVerificationCodeExpired(code)) throw new ApiException("This code has expired. Please login again.");
-
+        // The code is looked up by the user it was issued to, so it can only ever match that user's email
+        User user = getUserByEmail(email);
+        VerificationResult result;
         try {
-            User userByCode = jdbc.queryForObject(SELECT_USER_BY_USER_CODE_QUERY, Map.of("code", code), new UserRowMapper());
-            User userByEmail = jdbc.queryForObject(SELECT_USER_BY_EMAIL_QUERY, Map.of("email", email), new UserRowMapper());
-
-            if (userByCode.getEmail().equalsIgnoreCase(userByEmail.getEmail())) {
-                jdbc.update(DELETE_CODE, Map.of("code", code));
-                return userByCode;
-            } else {
-                throw new ApiException("Code is invalid. Please Try again");
-            }
-
-        } catch (EmptyResultDataAccessException exception) {
-            throw new ApiException("could not find record");
+            result = verificationCodeStore.consume(user.getId(), code);
         } catch (Exception exception) {
+            log.error(exception.getMessage());
             throw new ApiException("An error occurred. Please try again.");
-
         }
+        return switch (result) {
+            case VALID -> user;
+            case EXPIRED -> throw new ApiException("This code has expired. Please login again.");
+            case INVALID -> throw new ApiException("Code is invalid. Please Try again");
+        };
     }
 
     // -------- START RESET PASSWORD FUNCTIONALITY -----//
 
 
     @Override
+    @Transactional
     public void resetPassword(String email) {
-        if(getEmailCount(email.trim().toLowerCase()) <= 0) throw new ApiException("There is no account for this email address.");
+        User user;
+        try {
+            user = jdbc.queryForObject(SELECT_USER_BY_EMAIL_QUERY, of("email", email.trim().toLowerCase()), new UserRowMapper());
+        } catch (EmptyResultDataAccessException exception) {
+            throw new ApiException("There is no account for this email address.");
+        } catch (Exception exception) {
+            log.error(exception.getMessage());
+            throw new ApiException("An error occurred. Please try again.");
+        }
         try {
-            String expirationDate = format(addDays(new Date(), 1), DATE_FORMAT);
-            User user = getUserByEmail(email);
-            String verificationUrl = getVerificationUrl(UUID.randomUUID().toString(), PASSWORD.getType());
-            jdbc.update(DELETE_PASSWORD_VERIFICATION_BY_USER_ID_QUERY, of("userId",  user.getId()));
-            jdbc.update(INSERT_PASSWORD_VERIFICATION_QUERY, of("userId",  user.getId(), "url", verificationUrl, "expirationDate", expirationDate));
-            // TODO send email with url to user
+            String key = newKey();
+            String verificationUrl = getVerificationUrl(key, PASSWORD.getType());
+            // Replaces an earlier link for the same user in one statement, expiry uses the database clock
+            jdbc.update(UPSERT_PASSWORD_VERIFICATION_QUERY, of("userId",  requireNonNull(user).getId(), "tokenHash", hashKey(key), "ttlSeconds", PASSWORD_LINK_TTL.toSeconds()));
+            outboxRepository.enqueue(resetPasswordEmail(user, key, verificationUrl));
             log.info("Verification URL: {}", verificationUrl);
         } catch (Exception exception) {
             throw new ApiException("An error occurred. Please try again.");
@@ -206,79 +247,80 @@ public class UserRepositoryImplementation implements UserRepository<User>, UserD
 
     @Override
     public User verifyPasswordKey(String key) {
-        if(isLinkExpired(key, PASSWORD)) throw new ApiException("This link has expired. Please reset your password again.");
-        try {
-            User user = jdbc.queryForObject(SELECT_USER_BY_PASSWORD_URL_QUERY, of("url", getVerificationUrl(key, PASSWORD.getType())), new UserRowMapper());
-            //jdbc.update("DELETE_USER_FROM_PASSWORD_VERIFICATION_QUERY", of("id", user.getId())); //Depends on use case / developer or business
-            return user;
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
-            throw new ApiException("This link is not valid. Please reset your password again.");
-        } catch (Exception exception) {
-            log.error(exception.getMessage());
-            throw new ApiException("An error occurred. Please try again.");
-        }
+        return getUserByPasswordKey(hashKey(key));
     }
 
     @Override
     public void renewPassword(String key, String password, String confirmPassword) {
         if(!password.equals(confirmPassword)) throw new ApiException("Passwords don't match. Please try again.");
+        byte[] tokenHash = hashKey(key);
+        // Rejects unknown and expired links before paying for the hash
+        User user = getUserByPasswordKey(tokenHash);
+        String encodedPassword = encoder.encode(password);
+        int updated;
         try {
-            jdbc.update(UPDATE_USER_PASSWORD_BY_URL_QUERY, of("password", encoder.encode(password), "url", getVerificationUrl(key, PASSWORD.getType())));
-            jdbc.update(DELETE_VERIFICATION_BY_URL_QUERY, of("url", getVerificationUrl(key, PASSWORD.getType())));
+            // Sets the password and expires the link in one statement, the sweeper deletes the row later
+            updated = jdbc.update(UPDATE_USER_PASSWORD_BY_TOKEN_HASH_QUERY, of("password", encodedPassword, "tokenHash", tokenHash));
         } catch (Exception exception) {
             log.error(exception.getMessage());
             throw new ApiException("An error occurred. Please try again.");
         }
+        // No rows means the link was used or expired after it was read
+        if(updated == 0) throw new ApiException("This link is not valid. Please reset your password again.");
+        recentWrites.markWritten(user.getEmail());
+        principalCache.invalidate(user.getEmail());
+        // Tokens issued with the old password stop working on every instance
+        tokenRevocationService.revokeSubject(user.getEmail());
+        eventService.addUserEvent(user.getEmail(), PASSWORD_UPDATE);
     }
 
-    // -------- END RESET PASSWORD FUNCTIONALITY -----//
-
-    @Override
-    public User verifyAccountKey(String key) {
+    private User getUserByPasswordKey(byte[] tokenHash) {
+        // One statement returns the user and whether the link has expired
+        PasswordKeyUser keyUser;
         try {
-            User user =  jdbc.queryForObject(SELECT_USER_BY_ACCOUNT_URL_QUERY, of("url", getVerificationUrl(key, ACCOUNT.getType())), new UserRowMapper());
-            jdbc.update(UPDATE_USER_ENABLED_QUERY, Map.of("enabled", true, "id", user.getId()));
-            return user;
+            keyUser = jdbc.queryForObject(SELECT_USER_BY_PASSWORD_TOKEN_HASH_QUERY, of("tokenHash", tokenHash),
+                    (resultSet, rowNum) -> new PasswordKeyUser(new UserRowMapper().mapRow(resultSet, rowNum), resultSet.getBoolean("is_expired")));
         } catch (EmptyResultDataAccessException exception) {
-            throw new ApiException("This link is not not valid ");
-        } catch (Exception exception) {
-            throw new ApiException("An error occurred. Please try again.");
-        }
-    }
-
-    private Boolean isLinkExpired(String key, VerificationType password) {
-        try {
-            return jdbc.queryForObject(SELECT_EXPIRATION_BY_URL, of("url", getVerificationUrl(key, password.getType())), Boolean.class);
-        } catch (EmptyResultDataAccessException exception) {
-            log.error(exception.getMessage());
             throw new ApiException("This link is not valid. Please reset your password again.");
         } catch (Exception exception) {
             log.error(exception.getMessage());
             throw new ApiException("An error occurred. Please try again.");
         }
+        if(requireNonNull(keyUser).expired()) throw new ApiException("This link has expired. Please reset your password again.");
+        return keyUser.user();
     }
 
+    private record PasswordKeyUser(User user, boolean expired) {}
 
+    // -------- END RESET PASSWORD FUNCTIONALITY -----//
 
-
-    private Boolean isVerificationCodeExpired(String code) {
+    @Override
+    public User verifyAccountKey(String key) {
         try {
-            return jdbc.queryForObject(SELECT_CODE_EXPIRATION_QUERY, of("code", code), Boolean.class);
+            User user =  jdbc.queryForObject(SELECT_USER_BY_ACCOUNT_TOKEN_HASH_QUERY, of("tokenHash", hashKey(key)), new UserRowMapper());
+            // Opening the link again finds the account enabled and writes nothing
+            if(!requireNonNull(user).isEnabled()) {
+                jdbc.update(UPDATE_USER_ENABLED_QUERY, Map.of("enabled", true, "id", user.getId()));
+                recentWrites.markWritten(user.getEmail());
+                principalCache.invalidate(user.getEmail());
+            }
+            return user;
         } catch (EmptyResultDataAccessException exception) {
-            throw new ApiException("This code is not valid. Please login again.");
+            throw new ApiException("This link is not not valid ");
         } catch (Exception exception) {
             throw new ApiException("An error occurred. Please try again.");
         }
     }
 
 
+
+
     private SqlParameterSource getParametersSource(User user) {
         return new MapSqlParameterSource()
                 .addValue("firstName", user.getFirstName())
                 .addValue("lastName", user.getLastName())
                 .addValue("email", user.getEmail())
-                .addValue("password", encoder.encode(user.getPassword()));
+                .addValue("password", user.getPassword());
 
     }
 
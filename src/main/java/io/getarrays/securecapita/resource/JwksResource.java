@@ -0,0 +1,40 @@
+package io.getarrays.securecapita.resource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.getarrays.securecapita.provider.JwtKeyRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.util.DigestUtils.md5DigestAsHex;
+
+/**
+ * Public keys for services that verify our tokens themselves. The key set only changes on restart,
+ * so the JSON is rendered once and clients revalidate with If-None-Match after jwt.jwks-max-age.
+ */
+@RestController
+public class JwksResource {
+    private final String jwks;
+    private final String eTag;
+    private final CacheControl cacheControl;
+
+    public JwksResource(JwtKeyRing keyRing, ObjectMapper objectMapper,
+                        @Value("${jwt.jwks-max-age:PT15M}") Duration maxAge) throws JsonProcessingException {
+        this.jwks = objectMapper.writeValueAsString(keyRing.getJwks());
+        this.eTag = "\"" + md5DigestAsHex(jwks.getBytes(UTF_8)) + "\"";
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    @GetMapping(path = "/.well-known/jwks.json", produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> jwks() {
+        // A matching If-None-Match gets a 304 from the ResponseEntity handler without the body
+        return ResponseEntity.ok().cacheControl(cacheControl).eTag(eTag).body(jwks);
+    }
+}
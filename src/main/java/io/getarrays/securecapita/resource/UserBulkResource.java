@@ -0,0 +1,91 @@
+package io.getarrays.securecapita.resource;
+
+import io.getarrays.securecapita.domain.HttpResponse;
+import io.getarrays.securecapita.dto.UserImportJob;
+import io.getarrays.securecapita.enumeration.ExportFormat;
+import io.getarrays.securecapita.service.UserBulkService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+
+import static java.time.LocalDateTime.now;
+import static java.util.Map.of;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpStatus.ACCEPTED;
+import static org.springframework.http.HttpStatus.OK;
+
+@RestController
+@RequestMapping(path = "/user/bulk")
+public class UserBulkResource {
+    private final UserBulkService userBulkService;
+    private final AsyncTaskExecutor exportExecutor;
+    private final long exportTimeoutMillis;
+
+    public UserBulkResource(UserBulkService userBulkService,
+                            @Qualifier("exportExecutor") AsyncTaskExecutor exportExecutor,
+                            @Value("${export.timeout:30m}") Duration exportTimeout) {
+        this.userBulkService = userBulkService;
+        this.exportExecutor = exportExecutor;
+        this.exportTimeoutMillis = exportTimeout.toMillis();
+    }
+
+    // The body is written on the export executor (see ExportConfig), not on a request thread. Other async
+    // requests keep Spring's default executor and timeout.
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportUsers(@RequestParam(value = "format", defaultValue = "ndjson") String format, HttpServletResponse response) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        // Headers are set once the task runs, so a rejected or timed out export can still answer with a JSON error
+        return new WebAsyncTask<>(exportTimeoutMillis, exportExecutor, () -> {
+            response.setContentType(exportFormat.getMediaType().toString());
+            response.setHeader(CONTENT_DISPOSITION, "attachment; filename=\"users." + exportFormat.getExtension() + "\"");
+            userBulkService.exportUsers(exportFormat, response.getOutputStream());
+            return null;
+        });
+    }
+
+    // Answers 202 with a handle once the upload is stored, the users are created in the background
+    @PostMapping("/import")
+    public ResponseEntity<HttpResponse> importUsers(@RequestParam(value = "format", defaultValue = "csv") String format, InputStream inputStream) throws IOException {
+        UserImportJob job = userBulkService.startImport(ExportFormat.from(format), inputStream);
+        return ResponseEntity.accepted().location(getImportUri(job.getId())).body(
+                HttpResponse.builder()
+                        .timeStamp(now().toString())
+                        .data(of("import", job))
+                        .message("Import started")
+                        .status(ACCEPTED)
+                        .statusCode(ACCEPTED.value())
+                        .build());
+    }
+
+    @GetMapping("/import/{id}")
+    public ResponseEntity<HttpResponse> getImport(@PathVariable("id") String id) {
+        UserImportJob job = userBulkService.getImport(id);
+        return ResponseEntity.ok().body(
+                HttpResponse.builder()
+                        .timeStamp(now().toString())
+                        .data(of("import", job))
+                        .message(job.getMessage() == null ? "Import " + job.getStatus().name().toLowerCase() : job.getMessage())
+                        .status(OK)
+                        .statusCode(OK.value())
+                        .build());
+    }
+
+    private URI getImportUri(String id) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path("/user/bulk/import/{id}").buildAndExpand(id).toUri();
+    }
+}
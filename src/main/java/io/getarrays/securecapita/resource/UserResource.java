@@ -1,32 +1,50 @@
 package io.getarrays.securecapita.resource;
 
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import io.getarrays.securecapita.domain.HttpResponse;
+import io.getarrays.securecapita.domain.Role;
 import io.getarrays.securecapita.domain.User;
 import io.getarrays.securecapita.domain.UserPrincipal;
 import io.getarrays.securecapita.dto.UserDTO;
+import io.getarrays.securecapita.dto.UserPage;
 import io.getarrays.securecapita.exception.ApiException;
+import io.getarrays.securecapita.exception.TooManyRequestsException;
 import io.getarrays.securecapita.form.LoginForm;
+import io.getarrays.securecapita.form.LogoutForm;
+import io.getarrays.securecapita.provider.LoginThrottle;
 import io.getarrays.securecapita.provider.TokenProvider;
-import io.getarrays.securecapita.service.RoleService;
+import io.getarrays.securecapita.service.EventService;
+import io.getarrays.securecapita.service.TokenRevocationService;
 import io.getarrays.securecapita.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import jakarta.validation.Valid;
 
 import java.net.URI;
+import java.util.HashMap;
 import java.util.Map;
 
 import static io.getarrays.securecapita.dtomapper.UserDTOMapper.toUser;
+import static io.getarrays.securecapita.enumeration.EventType.*;
 import static io.getarrays.securecapita.utils.ExceptionUtils.processError;
+import static io.getarrays.securecapita.utils.RequestUtils.getIpAddress;
 import static java.time.LocalDateTime.now;
 import static java.util.Map.of;
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
@@ -37,27 +55,68 @@ import static org.springframework.security.authentication.UsernamePasswordAuthen
 @RestController
 @RequestMapping(path = "/user")
 @RequiredArgsConstructor
+@Slf4j
 public class UserResource {
     private final UserService userService;
-    private final RoleService roleService;
     private final AuthenticationManager authenticationManager;
     private final TokenProvider tokenProvider;
     private final HttpServletRequest request;
     private final HttpServletResponse response;
+    private final EventService eventService;
+    private final LoginThrottle loginThrottle;
+    private final MeterRegistry meterRegistry;
+    private final TokenRevocationService tokenRevocationService;
 
     private static final String TOKEN_PREFIX = "Bearer ";
+    private static final String LOGIN_METRIC = "securecapita.login";
 
 
     @PostMapping("/login")
     public ResponseEntity<HttpResponse> login(@RequestBody @Valid LoginForm loginForm){
-        Authentication authentication = authenticationManager.authenticate(unauthenticated(loginForm.getEmail(), loginForm.getPassword()));
-        UserDTO user = getAuthenticationuser(authentication);
-        return user.isUsingMfa() ? sendVerificationCode(user) : sendResponse(user);
+        // Over-limit attempts are rejected here, before the password is hashed
+        try {
+            loginThrottle.checkAllowed(loginForm.getEmail(), getIpAddress(request));
+        } catch (TooManyRequestsException exception) {
+            countLogin("throttled");
+            throw exception;
+        }
+        eventService.addUserEvent(loginForm.getEmail(), LOGIN_ATTEMPT);
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(unauthenticated(loginForm.getEmail(), loginForm.getPassword()));
+        } catch (AuthenticationException exception) {
+            eventService.addUserEvent(loginForm.getEmail(), LOGIN_ATTEMPT_FAILURE);
+            if(exception instanceof BadCredentialsException) loginThrottle.onFailure(loginForm.getEmail());
+            countLogin(getLoginOutcome(exception));
+            throw exception;
+        }
+        loginThrottle.onSuccess(loginForm.getEmail());
+        // The principal loaded during authentication is reused for both tokens, no further queries
+        UserPrincipal userPrincipal = getAuthenticatedPrincipal(authentication);
+        UserDTO user = userPrincipal.getUser();
+        if(user.isUsingMfa()) {
+            countLogin("mfa_required");
+            return sendVerificationCode(user);
+        }
+        eventService.addUserEvent(user.getEmail(), LOGIN_ATTEMPT_SUCCESS);
+        countLogin("success");
+        return sendResponse(user, userPrincipal);
 
     }
 
-    private UserDTO getAuthenticationuser(Authentication authentication){
-        return ((UserPrincipal) authentication.getPrincipal()).getUser();
+    private void countLogin(String outcome) {
+        meterRegistry.counter(LOGIN_METRIC, "outcome", outcome).increment();
+    }
+
+    private String getLoginOutcome(AuthenticationException exception) {
+        if(exception instanceof BadCredentialsException) return "bad_credentials";
+        if(exception instanceof LockedException) return "locked";
+        if(exception instanceof DisabledException) return "disabled";
+        return "error";
+    }
+
+    private UserPrincipal getAuthenticatedPrincipal(Authentication authentication){
+        return (UserPrincipal) authentication.getPrincipal();
     }
 
 
@@ -91,6 +150,23 @@ public class UserResource {
                         .build());
     }
 
+    @GetMapping("/list")
+    public ResponseEntity<HttpResponse> listUsers(@RequestParam(value = "cursor", required = false) String cursor,
+                                                  @RequestParam(value = "size", defaultValue = "50") int size) {
+        UserPage page = userService.listUsers(cursor, size);
+        Map<String, Object> data = new HashMap<>();
+        data.put("users", page.getUsers());
+        data.put("nextCursor", page.getNextCursor());
+        return ResponseEntity.ok().body(
+                HttpResponse.builder()
+                        .timeStamp(now().toString())
+                        .data(data)
+                        .message("Users Retrieved")
+                        .status(OK)
+                        .statusCode(OK.value())
+                        .build());
+    }
+
     @GetMapping ("/resetPassword/{email}")
 
     public ResponseEntity<HttpResponse> resetPassword(@PathVariable("email") String email){
@@ -148,9 +224,10 @@ public class UserResource {
 
     @GetMapping("/refresh/token")
     public ResponseEntity<HttpResponse> refreshToken(HttpServletRequest request ) {
-        if(isHeaderAndTokenValid(request)){
-            String token  = request.getHeader(AUTHORIZATION).substring(TOKEN_PREFIX.length());
-            UserDTO user   = userService.getUserByEmail(tokenProvider.getSubject(token, request));
+        DecodedJWT decodedJWT = getValidToken(request);
+        if(decodedJWT != null){
+            String token  = decodedJWT.getToken();
+            UserDTO user   = userService.getUserByEmail(decodedJWT.getSubject());
             return ResponseEntity.ok().body(
                     HttpResponse.builder()
                             .timeStamp(now().toString())
@@ -181,6 +258,28 @@ public class UserResource {
 
 
 
+    @PostMapping("/logout")
+    public ResponseEntity<HttpResponse> logout(Authentication authentication, @RequestBody(required = false) LogoutForm logoutForm) {
+        // The filter already verified the access token, so it is only decoded here to read its claims
+        tokenRevocationService.revokeToken(JWT.decode(request.getHeader(AUTHORIZATION).substring(TOKEN_PREFIX.length())));
+        if(logoutForm != null && logoutForm.getRefreshToken() != null) {
+            // An expired or unreadable refresh token cannot be used anyway, so the logout still succeeds
+            try {
+                DecodedJWT refreshToken = tokenProvider.verifyToken(logoutForm.getRefreshToken(), request);
+                if(authentication.getName().equalsIgnoreCase(refreshToken.getSubject())) tokenRevocationService.revokeToken(refreshToken);
+            } catch (JWTVerificationException exception) {
+                log.info("Refresh token sent on logout was not revoked: {}", exception.getMessage());
+            }
+        }
+        return ResponseEntity.ok().body(
+                HttpResponse.builder()
+                        .timeStamp(now().toString())
+                        .message("Logged out")
+                        .status(OK)
+                        .statusCode(OK.value())
+                        .build());
+    }
+
     @RequestMapping ("/error")
     public ResponseEntity<HttpResponse> handleError(HttpServletRequest request){
 
@@ -222,33 +321,29 @@ public class UserResource {
     @GetMapping ("/verify/code/{email}/{code}")
     public ResponseEntity<HttpResponse> verifyCode(@PathVariable("email") String email,@PathVariable("code") String code ){
 
-        UserDTO user = userService.verifyCode(email,code);
-        return ResponseEntity.ok().body(
-                HttpResponse.builder()
-                        .timeStamp(now().toString())
-                        .data(Map.of(
-                                "user", user,
-                                "access_token", tokenProvider.createAccessToken(getUserprincipal(user)),
-                                "refresh_token", tokenProvider.createRefreshToken(getUserprincipal(user))
-                        ))
-                        .message("Login Success")
-                        .status(HttpStatus.OK)
-                        .statusCode(HttpStatus.OK.value())
-                        .build());
+        UserDTO user;
+        try {
+            user = userService.verifyCode(email,code);
+        } catch (ApiException exception) {
+            eventService.addUserEvent(email, LOGIN_ATTEMPT_FAILURE);
+            throw exception;
+        }
+        eventService.addUserEvent(user.getEmail(), LOGIN_ATTEMPT_SUCCESS);
+        return sendResponse(user, getUserprincipal(user));
     }
 
     private URI getUri() {
         return URI.create(ServletUriComponentsBuilder.fromCurrentContextPath().path("/user/get/<userId>").toString());
     }
 
-    private ResponseEntity<HttpResponse> sendResponse(UserDTO user) {
+    private ResponseEntity<HttpResponse> sendResponse(UserDTO user, UserPrincipal userPrincipal) {
         return ResponseEntity.ok().body(
                 HttpResponse.builder()
                         .timeStamp(now().toString())
                         .data(Map.of(
                                 "user", user,
-                                "access_token", tokenProvider.createAccessToken(getUserprincipal(user)),
-                                "refresh_token", tokenProvider.createRefreshToken(getUserprincipal(user))
+                                "access_token", tokenProvider.createAccessToken(userPrincipal),
+                                "refresh_token", tokenProvider.createRefreshToken(userPrincipal)
                         ))
                         .message("Login Success")
                         .status(HttpStatus.OK)
@@ -256,8 +351,9 @@ public class UserResource {
                         .build());
     }
 
+    // The DTO already carries the role name and permissions, which is all token creation needs
     private UserPrincipal getUserprincipal(UserDTO user) {
-        return new UserPrincipal(toUser(userService.getUserByEmail(user.getEmail())), roleService.getRoleByUserId(user.getId()));
+        return new UserPrincipal(toUser(user), Role.builder().name(user.getRoleName()).permission(user.getPermissions()).build());
     }
 
     private ResponseEntity<HttpResponse> sendVerificationCode(UserDTO user) {
@@ -274,12 +370,10 @@ public class UserResource {
 
 
 
-    private boolean isHeaderAndTokenValid(HttpServletRequest request) {
-        return request.getHeader(AUTHORIZATION) != null && request.getHeader(AUTHORIZATION).startsWith(TOKEN_PREFIX)
-                && tokenProvider.isTokenValid(
-                        tokenProvider.getSubject(request.getHeader(AUTHORIZATION).substring(TOKEN_PREFIX.length()), request),
-                        request.getHeader(AUTHORIZATION).substring(TOKEN_PREFIX.length())
-                );
+    private DecodedJWT getValidToken(HttpServletRequest request) {
+        if(request.getHeader(AUTHORIZATION) == null || !request.getHeader(AUTHORIZATION).startsWith(TOKEN_PREFIX)) return null;
+        DecodedJWT decodedJWT = tokenProvider.verifyToken(request.getHeader(AUTHORIZATION).substring(TOKEN_PREFIX.length()), request);
+        return tokenProvider.isTokenValid(decodedJWT) && !tokenRevocationService.isRevoked(decodedJWT) ? decodedJWT : null;
     }
 
 
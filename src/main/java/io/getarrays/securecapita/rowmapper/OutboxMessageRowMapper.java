@@ -0,0 +1,26 @@
+package io.getarrays.securecapita.rowmapper;
+
+import io.getarrays.securecapita.domain.OutboxMessage;
+import io.getarrays.securecapita.enumeration.MessageChannel;
+import io.getarrays.securecapita.enumeration.OutboxStatus;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class OutboxMessageRowMapper implements RowMapper<OutboxMessage> {
+    @Override
+    public OutboxMessage mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+        return OutboxMessage.builder()
+                .id(resultSet.getLong("id"))
+                .channel(MessageChannel.valueOf(resultSet.getString("channel")))
+                .recipient(resultSet.getString("recipient"))
+                .subject(resultSet.getString("subject"))
+                .body(resultSet.getString("body"))
+                .dedupeKey(resultSet.getString("dedupe_key"))
+                .status(OutboxStatus.valueOf(resultSet.getString("status")))
+                .attempts(resultSet.getInt("attempts"))
+                .lastError(resultSet.getString("last_error"))
+                .build();
+    }
+}
@@ -0,0 +1,21 @@
+package io.getarrays.securecapita.rowmapper;
+
+import io.getarrays.securecapita.cache.RoleCatalog;
+import io.getarrays.securecapita.domain.UserPrincipal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Maps a Users row that also carries UserRoles.role_id; the role itself comes from the catalog
+@RequiredArgsConstructor
+public class UserPrincipalRowMapper implements RowMapper<UserPrincipal> {
+    private final RoleCatalog roleCatalog;
+    private final UserRowMapper userRowMapper = new UserRowMapper();
+
+    @Override
+    public UserPrincipal mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+        return new UserPrincipal(userRowMapper.mapRow(resultSet, rowNum), roleCatalog.getRoleById(resultSet.getLong("role_id")));
+    }
+}
@@ -0,0 +1,38 @@
+package io.getarrays.securecapita.rowmapper;
+
+import io.getarrays.securecapita.cache.RoleCatalog;
+import io.getarrays.securecapita.domain.Role;
+import io.getarrays.securecapita.dto.UserDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Listing projection: no password or bio column, role resolved from the catalog by role_id
+@RequiredArgsConstructor
+public class UserSummaryRowMapper implements RowMapper<UserDTO> {
+    private final RoleCatalog roleCatalog;
+
+    @Override
+    public UserDTO mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+        long roleId = resultSet.getLong("role_id");
+        Role role = resultSet.wasNull() ? null : roleCatalog.getRoleById(roleId);
+        return new UserDTO(
+                resultSet.getLong("id"),
+                resultSet.getString("first_name"),
+                resultSet.getString("last_name"),
+                resultSet.getString("email"),
+                resultSet.getString("address"),
+                resultSet.getString("phone"),
+                resultSet.getString("title"),
+                null,
+                resultSet.getString("image_url"),
+                resultSet.getBoolean("enabled"),
+                resultSet.getBoolean("non_locked"),
+                resultSet.getBoolean("using_mfa"),
+                resultSet.getTimestamp("created_at").toLocalDateTime(),
+                role == null ? null : role.getName(),
+                role == null ? null : role.getPermission());
+    }
+}
@@ -0,0 +1,126 @@
+package io.getarrays.securecapita.scheduler;
+
+import io.getarrays.securecapita.domain.OutboxMessage;
+import io.getarrays.securecapita.repository.OutboxRepository;
+import io.getarrays.securecapita.transport.MessageTransport;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drains the outbox in batches. Each batch is claimed with a single UPDATE so several instances can
+ * run side by side, sent with at most {@code outbox.concurrency} deliveries in flight, and then
+ * marked sent or rescheduled with exponential backoff and jitter until {@code outbox.max-attempts}.
+ */
+@Component
+@Slf4j
+public class OutboxDispatcher {
+    private final OutboxRepository outboxRepository;
+    private final List<MessageTransport> transports;
+    private final ExecutorService sendExecutor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration claimTimeout;
+
+    public OutboxDispatcher(OutboxRepository outboxRepository,
+                            List<MessageTransport> transports,
+                            @Value("${outbox.concurrency:4}") int concurrency,
+                            @Value("${outbox.batch-size:50}") int batchSize,
+                            @Value("${outbox.max-attempts:6}") int maxAttempts,
+                            @Value("${outbox.initial-backoff:5s}") Duration initialBackoff,
+                            @Value("${outbox.max-backoff:15m}") Duration maxBackoff,
+                            @Value("${outbox.claim-timeout:5m}") Duration claimTimeout) {
+        this.outboxRepository = outboxRepository;
+        this.transports = transports;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.claimTimeout = claimTimeout;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("outbox-");
+        threadFactory.setDaemon(true);
+        this.sendExecutor = Executors.newFixedThreadPool(concurrency, threadFactory);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval:PT1S}", initialDelayString = "${outbox.poll-interval:PT1S}")
+    public void dispatch() {
+        try {
+            outboxRepository.releaseStaleClaims(claimTimeout);
+            List<OutboxMessage> batch;
+            do {
+                batch = outboxRepository.claim(UUID.randomUUID().toString(), batchSize);
+                send(batch);
+            } while (batch.size() == batchSize);
+        } catch (Exception exception) {
+            log.error("Outbox dispatch failed: {}", exception.getMessage());
+        }
+    }
+
+    private void send(List<OutboxMessage> batch) {
+        if(batch.isEmpty()) return;
+        Queue<Long> sent = new ConcurrentLinkedQueue<>();
+        Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>(batch.size());
+        for (OutboxMessage message : batch) {
+            deliveries.add(CompletableFuture.runAsync(() -> {
+                try {
+                    getTransport(message).send(message);
+                    sent.add(message.getId());
+                } catch (Exception exception) {
+                    failures.add(new Failure(message, exception.getMessage() == null ? exception.getClass().getSimpleName() : exception.getMessage()));
+                }
+            }, sendExecutor));
+        }
+        CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)).join();
+        outboxRepository.markSent(sent);
+        for (Failure failure : failures) {
+            OutboxMessage message = failure.message();
+            if(message.getAttempts() >= maxAttempts) {
+                log.error("Giving up on outbox message {} after {} attempts: {}", message.getId(), message.getAttempts(), failure.error());
+                outboxRepository.markFailed(message.getId(), failure.error());
+            } else {
+                long delaySeconds = backoffSeconds(message.getAttempts());
+                log.warn("Outbox message {} failed (attempt {}), retrying in {}s: {}", message.getId(), message.getAttempts(), delaySeconds, failure.error());
+                outboxRepository.reschedule(message.getId(), delaySeconds, failure.error());
+            }
+        }
+        log.debug("Outbox batch of {} sent, {} failed", sent.size(), failures.size());
+    }
+
+    private MessageTransport getTransport(OutboxMessage message) {
+        return transports.stream()
+                .filter(transport -> transport.supports(message.getChannel()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No transport configured for " + message.getChannel()));
+    }
+
+    // Exponential backoff with "equal jitter": half fixed, half random, so retries of a burst spread out
+    private long backoffSeconds(int attempts) {
+        long exponential = initialBackoff.toSeconds() << Math.min(attempts - 1, 20);
+        long capped = Math.min(Math.max(exponential, 1), maxBackoff.toSeconds());
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdown();
+    }
+
+    private record Failure(OutboxMessage message, String error) {}
+}
@@ -0,0 +1,106 @@
+package io.getarrays.securecapita.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.getarrays.securecapita.query.SweeperQuery.*;
+
+/**
+ * Purges expired verification rows (plus delivered outbox messages and expired token revocations) with bounded {@code DELETE ... LIMIT}
+ * statements, each in its own autocommit transaction with a pause in between, so no run holds
+ * locks on these tables for longer than one small chunk.
+ */
+@Component
+@Slf4j
+public class VerificationSweeper {
+    private final NamedParameterJdbcTemplate jdbc;
+    private final int chunkSize;
+    private final Duration pause;
+    private final int maxChunksPerTable;
+    private final Duration accountVerificationRetention;
+    private final Duration outboxRetention;
+    private final AtomicLong totalPurged = new AtomicLong();
+    private volatile Map<String, Long> lastRunPurged = Map.of();
+    private volatile Duration lastRunDuration = Duration.ZERO;
+    private volatile LocalDateTime lastRunAt;
+
+    public VerificationSweeper(NamedParameterJdbcTemplate jdbc,
+                               @Value("${sweeper.chunk-size:500}") int chunkSize,
+                               @Value("${sweeper.pause:200ms}") Duration pause,
+                               @Value("${sweeper.max-chunks-per-table:1000}") int maxChunksPerTable,
+                               @Value("${sweeper.account-verification-retention:30d}") Duration accountVerificationRetention,
+                               @Value("${sweeper.outbox-retention:7d}") Duration outboxRetention) {
+        this.jdbc = jdbc;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+        this.maxChunksPerTable = maxChunksPerTable;
+        this.accountVerificationRetention = accountVerificationRetention;
+        this.outboxRetention = outboxRetention;
+    }
+
+    @Scheduled(cron = "${sweeper.cron:0 */15 * * * *}")
+    public void sweep() {
+        long start = System.nanoTime();
+        LocalDateTime runAt = LocalDateTime.now();
+        Map<String, Long> purged = new LinkedHashMap<>();
+        try {
+            purged.put("TwoFactorVerifications", purge(DELETE_EXPIRED_TWO_FACTOR_VERIFICATIONS_QUERY, new MapSqlParameterSource()));
+            purged.put("ResetPasswordVerifications", purge(DELETE_EXPIRED_PASSWORD_VERIFICATIONS_QUERY, new MapSqlParameterSource()));
+            purged.put("AccountVerifications", purge(DELETE_OLD_ACCOUNT_VERIFICATIONS_QUERY,
+                    new MapSqlParameterSource("retentionSeconds", accountVerificationRetention.toSeconds())));
+            purged.put("Outbox", purge(DELETE_SENT_OUTBOX_MESSAGES_QUERY,
+                    new MapSqlParameterSource("retentionSeconds", outboxRetention.toSeconds())));
+            purged.put("RevokedTokens", purge(DELETE_EXPIRED_REVOKED_TOKENS_QUERY, new MapSqlParameterSource()));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            log.warn("Verification sweep interrupted");
+        } catch (Exception exception) {
+            log.error("Verification sweep failed: {}", exception.getMessage());
+        } finally {
+            lastRunDuration = Duration.ofNanos(System.nanoTime() - start);
+            lastRunPurged = Map.copyOf(purged);
+            lastRunAt = runAt;
+            long runTotal = purged.values().stream().mapToLong(Long::longValue).sum();
+            totalPurged.addAndGet(runTotal);
+            log.info("Verification sweep purged {} rows in {} ms: {}", runTotal, lastRunDuration.toMillis(), purged);
+        }
+    }
+
+    private long purge(String query, MapSqlParameterSource parameters) throws InterruptedException {
+        parameters.addValue("limit", chunkSize);
+        long purged = 0;
+        for (int chunk = 0; chunk < maxChunksPerTable; chunk++) {
+            int deleted = jdbc.update(query, parameters);
+            purged += deleted;
+            if(deleted < chunkSize) break;
+            Thread.sleep(pause.toMillis());
+        }
+        return purged;
+    }
+
+    public Map<String, Long> getLastRunPurged() {
+        return lastRunPurged;
+    }
+
+    public Duration getLastRunDuration() {
+        return lastRunDuration;
+    }
+
+    public LocalDateTime getLastRunAt() {
+        return lastRunAt;
+    }
+
+    public long getTotalPurged() {
+        return totalPurged.get();
+    }
+}
@@ -0,0 +1,8 @@
+package io.getarrays.securecapita.service;
+
+import io.getarrays.securecapita.enumeration.EventType;
+
+public interface EventService {
+    /* Records an audit event for the user with the device and IP address of the current request, without waiting for the write */
+    void addUserEvent(String email, EventType type);
+}
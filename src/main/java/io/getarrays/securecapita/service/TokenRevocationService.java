@@ -0,0 +1,11 @@
+package io.getarrays.securecapita.service;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+public interface TokenRevocationService {
+    /* Revokes this token (by its jti claim) until it expires */
+    void revokeToken(DecodedJWT decodedJWT);
+    /* Revokes every token issued to the user up to now, e.g. after a password change */
+    void revokeSubject(String email);
+    boolean isRevoked(DecodedJWT decodedJWT);
+}
@@ -0,0 +1,16 @@
+package io.getarrays.securecapita.service;
+
+import io.getarrays.securecapita.dto.UserImportJob;
+import io.getarrays.securecapita.enumeration.ExportFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface UserBulkService {
+    void exportUsers(ExportFormat format, OutputStream outputStream) throws IOException;
+
+    UserImportJob startImport(ExportFormat format, InputStream inputStream) throws IOException;
+
+    UserImportJob getImport(String id);
+}
@@ -2,6 +2,7 @@ package io.getarrays.securecapita.service;
 
 import io.getarrays.securecapita.domain.User;
 import io.getarrays.securecapita.dto.UserDTO;
+import io.getarrays.securecapita.dto.UserPage;
 
 public interface UserService {
     UserDTO createUser(User user);
@@ -18,4 +19,6 @@ public interface UserService {
     void renewPassword(String key, String password, String confirmPassword);
 
     UserDTO verifyAccountKey(String key);
+
+    UserPage listUsers(String cursor, int size);
 }
@@ -0,0 +1,145 @@
+package io.getarrays.securecapita.service.implementation;
+
+import io.getarrays.securecapita.domain.UserEvent;
+import io.getarrays.securecapita.enumeration.EventType;
+import io.getarrays.securecapita.enumeration.OverflowPolicy;
+import io.getarrays.securecapita.repository.EventRepository;
+import io.getarrays.securecapita.service.EventService;
+import io.getarrays.securecapita.utils.MpmcRingBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.getarrays.securecapita.enumeration.OverflowPolicy.DROP;
+import static io.getarrays.securecapita.utils.RequestUtils.*;
+
+/**
+ * Request threads only put the event into a bounded lock-free ring buffer. One writer thread drains
+ * it and writes a multi-row insert when {@code audit.batch-size} events are waiting or the oldest has
+ * waited {@code audit.flush-interval}. When the buffer is full {@code audit.overflow-policy} decides
+ * between dropping the event and making the caller wait.
+ */
+@Service
+@Slf4j
+public class EventServiceImplementation implements EventService {
+    private static final long IDLE_PARK_NANOS = Duration.ofMillis(5).toNanos();
+    private static final long BLOCK_PARK_NANOS = Duration.ofMillis(1).toNanos();
+    private final EventRepository eventRepository;
+    private final MpmcRingBuffer<UserEvent> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder writtenCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public EventServiceImplementation(EventRepository eventRepository,
+                                      @Value("${audit.capacity:8192}") int capacity,
+                                      @Value("${audit.batch-size:256}") int batchSize,
+                                      @Value("${audit.flush-interval:1s}") Duration flushInterval,
+                                      @Value("${audit.overflow-policy:DROP}") OverflowPolicy overflowPolicy) {
+        this.eventRepository = eventRepository;
+        this.buffer = new MpmcRingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.overflowPolicy = overflowPolicy;
+        this.writer = new Thread(this::writeLoop, "audit-event-writer");
+        this.writer.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    @Override
+    public void addUserEvent(String email, EventType type) {
+        if(email == null) return;
+        HttpServletRequest request = getCurrentRequest();
+        UserEvent event = new UserEvent(email.trim().toLowerCase(), type, getDevice(request), getIpAddress(request), LocalDateTime.now());
+        if(buffer.offer(event)) return;
+        if(overflowPolicy == DROP || !running) {
+            droppedCount.increment();
+            return;
+        }
+        while (!buffer.offer(event)) {
+            if(!running) {
+                droppedCount.increment();
+                return;
+            }
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+    }
+
+    private void writeLoop() {
+        List<UserEvent> batch = new ArrayList<>(batchSize);
+        long firstEventAt = 0;
+        while (running || buffer.size() > 0) {
+            UserEvent event = buffer.poll();
+            if(event != null) {
+                if(batch.isEmpty()) firstEventAt = System.nanoTime();
+                batch.add(event);
+                if(batch.size() >= batchSize) flush(batch);
+                continue;
+            }
+            if(!batch.isEmpty() && System.nanoTime() - firstEventAt >= flushIntervalNanos) {
+                flush(batch);
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<UserEvent> batch) {
+        if(batch.isEmpty()) return;
+        try {
+            eventRepository.addUserEvents(batch);
+            writtenCount.add(batch.size());
+        } catch (Exception exception) {
+            failedCount.add(batch.size());
+            log.error("Could not write {} audit events: {}", batch.size(), exception.getMessage());
+        } finally {
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(Duration.ofSeconds(10).toMillis());
+    }
+
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+}
@@ -0,0 +1,153 @@
+package io.getarrays.securecapita.service.implementation;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.getarrays.securecapita.repository.RevokedTokenRepository;
+import io.getarrays.securecapita.service.TokenRevocationService;
+import io.getarrays.securecapita.utils.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.getarrays.securecapita.provider.TokenProvider.REFRESH_TOKEN_EXPIRATION_TIME;
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Revocations are persisted in RevokedTokens and mirrored in an in-memory Bloom filter. A token whose
+ * jti and subject both miss the filter is not revoked, so only possible matches cost a database lookup.
+ * The filter is rebuilt from the table on startup and on {@code token-revocation.rebuild-cron} (which
+ * drops expired entries) and picks up revocations made by other instances every
+ * {@code token-revocation.sync-interval}. Until the first rebuild every check goes to the table.
+ */
+@Service
+@Slf4j
+public class TokenRevocationServiceImplementation implements TokenRevocationService {
+    private static final String TOKEN_KEY_PREFIX = "jti:";
+    private static final String SUBJECT_KEY_PREFIX = "sub:";
+    private static final long SYNC_GRACE_SECONDS = 30;
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+    private final LongAdder checkCount = new LongAdder();
+    private final LongAdder lookupCount = new LongAdder();
+    private final LongAdder revokedCount = new LongAdder();
+    private volatile BloomFilter filter;
+    private volatile boolean ready;
+    private volatile long lastSync;
+
+    public TokenRevocationServiceImplementation(RevokedTokenRepository revokedTokenRepository,
+                                                @Value("${token-revocation.expected-revocations:100000}") long expectedRevocations,
+                                                @Value("${token-revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveRate);
+    }
+
+    @Override
+    public void revokeToken(DecodedJWT decodedJWT) {
+        if(decodedJWT.getId() == null) return;
+        long now = epochSeconds();
+        String tokenKey = TOKEN_KEY_PREFIX + decodedJWT.getId();
+        revokedTokenRepository.revoke(tokenKey, null, expiresAt(decodedJWT.getExpiresAt(), now), now);
+        filter.add(tokenKey);
+    }
+
+    @Override
+    public void revokeSubject(String email) {
+        long now = epochSeconds();
+        String tokenKey = SUBJECT_KEY_PREFIX + email.toLowerCase();
+        revokedTokenRepository.revoke(tokenKey, now, now + MILLISECONDS.toSeconds(REFRESH_TOKEN_EXPIRATION_TIME), now);
+        filter.add(tokenKey);
+    }
+
+    @Override
+    public boolean isRevoked(DecodedJWT decodedJWT) {
+        checkCount.increment();
+        List<String> candidates = new ArrayList<>(2);
+        if(decodedJWT.getId() != null) candidates.add(TOKEN_KEY_PREFIX + decodedJWT.getId());
+        if(decodedJWT.getSubject() != null) candidates.add(SUBJECT_KEY_PREFIX + decodedJWT.getSubject().toLowerCase());
+        if(ready) {
+            BloomFilter current = filter;
+            candidates.removeIf(tokenKey -> !current.mightContain(tokenKey));
+        }
+        if(candidates.isEmpty()) return false;
+        lookupCount.increment();
+        Map<String, Long> revocations = revokedTokenRepository.findActive(candidates, epochSeconds());
+        boolean revoked = revocations.entrySet().stream().anyMatch(revocation -> revocation.getKey().startsWith(TOKEN_KEY_PREFIX)
+                || (decodedJWT.getIssuedAt() != null && revocation.getValue() != null
+                    && MILLISECONDS.toSeconds(decodedJWT.getIssuedAt().getTime()) <= revocation.getValue()));
+        if(revoked) revokedCount.increment();
+        return revoked;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${token-revocation.rebuild-cron:0 0 * * * *}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        long now = epochSeconds();
+        try {
+            List<String> tokenKeys = new ArrayList<>();
+            revokedTokenRepository.forEachActiveKey(now, tokenKeys::add);
+            // Size for at least twice the current entries so the false positive rate holds until the next rebuild
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, tokenKeys.size() * 2L), falsePositiveRate);
+            tokenKeys.forEach(rebuilt::add);
+            filter = rebuilt;
+            // Revocations written while the table was being read went into the old filter
+            syncSince(now, now);
+            lastSync = now;
+            ready = true;
+            log.info("Rebuilt token revocation filter with {} entries in {} ms", tokenKeys.size(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } catch (Exception exception) {
+            // Leaves the previous filter in place; before the first successful rebuild every check reads the table
+            log.error("Token revocation filter rebuild failed: {}", exception.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${token-revocation.sync-interval:PT5S}")
+    public void sync() {
+        if(!ready) return;
+        long now = epochSeconds();
+        try {
+            syncSince(lastSync, now);
+            lastSync = now;
+        } catch (Exception exception) {
+            log.error("Token revocation sync failed: {}", exception.getMessage());
+        }
+    }
+
+    private void syncSince(long since, long now) {
+        BloomFilter current = filter;
+        revokedTokenRepository.forEachKeySince(since - SYNC_GRACE_SECONDS, now, current::add);
+    }
+
+    private static long expiresAt(Date expiresAt, long now) {
+        return expiresAt == null ? now + MILLISECONDS.toSeconds(REFRESH_TOKEN_EXPIRATION_TIME) : MILLISECONDS.toSeconds(expiresAt.getTime());
+    }
+
+    private static long epochSeconds() {
+        return MILLISECONDS.toSeconds(currentTimeMillis());
+    }
+
+    public long getCheckCount() {
+        return checkCount.sum();
+    }
+
+    public long getLookupCount() {
+        return lookupCount.sum();
+    }
+
+    public long getRevokedCount() {
+        return revokedCount.sum();
+    }
+}
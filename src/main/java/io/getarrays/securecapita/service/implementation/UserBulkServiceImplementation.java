@@ -0,0 +1,323 @@
+package io.getarrays.securecapita.service.implementation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.dto.UserDTO;
+import io.getarrays.securecapita.dto.UserImportJob;
+import io.getarrays.securecapita.dto.UserImportReport;
+import io.getarrays.securecapita.enumeration.ExportFormat;
+import io.getarrays.securecapita.exception.ApiException;
+import io.getarrays.securecapita.exception.ServiceBusyException;
+import io.getarrays.securecapita.provider.BoundedBCryptPasswordEncoder;
+import io.getarrays.securecapita.repository.UserBulkRepository;
+import io.getarrays.securecapita.service.UserBulkService;
+import io.getarrays.securecapita.utils.CsvReader;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static io.getarrays.securecapita.enumeration.VerificationType.ACCOUNT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+@Service
+@Slf4j
+public class UserBulkServiceImplementation implements UserBulkService {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // Spreadsheets evaluate a cell starting with one of these as a formula (CSV injection)
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+    private static final String CSV_HEADER = "id,first_name,last_name,email,address,phone,title,image_url,enabled,non_locked,using_mfa,created_at,role_name\n";
+    private final UserBulkRepository userBulkRepository;
+    private final ObjectMapper objectMapper;
+    private final BCryptPasswordEncoder encoder;
+    private final Validator validator;
+    private final ExecutorService hashingExecutor;
+    private final AsyncTaskExecutor importExecutor;
+    private final long importRetryAfterSeconds;
+    private final Cache<String, UserImportJob> importJobs;
+    private final int importChunkSize;
+
+    public UserBulkServiceImplementation(UserBulkRepository userBulkRepository,
+                                         ObjectMapper objectMapper,
+                                         BCryptPasswordEncoder encoder,
+                                         Validator validator,
+                                         @Qualifier("importExecutor") AsyncTaskExecutor importExecutor,
+                                         @Value("${import.retry-after-seconds:30}") long importRetryAfterSeconds,
+                                         @Value("${import.job-retention:1h}") Duration importJobRetention,
+                                         @Value("${import.hashing-threads:0}") int hashingThreads,
+                                         @Value("${import.chunk-size:500}") int importChunkSize) {
+        this.userBulkRepository = userBulkRepository;
+        this.objectMapper = objectMapper;
+        this.encoder = encoder;
+        this.validator = validator;
+        this.importExecutor = importExecutor;
+        this.importRetryAfterSeconds = importRetryAfterSeconds;
+        this.importJobs = Caffeine.newBuilder().expireAfterWrite(importJobRetention).maximumSize(1000).build();
+        this.importChunkSize = importChunkSize;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("import-hashing-");
+        threadFactory.setDaemon(true);
+        // A quarter of the cores by default, the password encoder's login pool already sizes itself to all of them
+        int threads = hashingThreads > 0 ? hashingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        this.hashingExecutor = Executors.newFixedThreadPool(threads, threadFactory);
+    }
+
+    @Override
+    public void exportUsers(ExportFormat format, OutputStream outputStream) throws IOException {
+        // Rows are written through a fixed-size buffer that reaches the socket one chunk at a time.
+        // A slow client blocks the write, which in turn stops the cursor from reading further rows.
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8), CHUNK_SIZE);
+        switch (format) {
+            case NDJSON -> writeNdjson(writer);
+            case CSV -> writeCsv(writer);
+        }
+        writer.flush();
+    }
+
+    @Override
+    public UserImportJob startImport(ExportFormat format, InputStream inputStream) throws IOException {
+        // Resolved here, the background thread has no request to build the verification links from
+        String verificationUrlPrefix = ServletUriComponentsBuilder.fromCurrentContextPath().path("/user/verify/" + ACCOUNT.getType() + "/").toUriString();
+        // The request body is gone once the response is sent, so the upload is spooled to disk first
+        Path upload = Files.createTempFile("user-import-", "." + format.getExtension());
+        try {
+            Files.copy(inputStream, upload, REPLACE_EXISTING);
+        } catch (IOException exception) {
+            Files.deleteIfExists(upload);
+            throw exception;
+        }
+        UserImportJob job = new UserImportJob(UUID.randomUUID().toString(), format);
+        importJobs.put(job.getId(), job);
+        try {
+            importExecutor.execute(() -> runImport(job, upload, verificationUrlPrefix));
+        } catch (TaskRejectedException exception) {
+            importJobs.invalidate(job.getId());
+            Files.deleteIfExists(upload);
+            throw new ServiceBusyException("Too many imports are running. Please try again later.", importRetryAfterSeconds);
+        }
+        log.info("Import {} of a {} file queued", job.getId(), format);
+        return job;
+    }
+
+    @Override
+    public UserImportJob getImport(String id) {
+        UserImportJob job = importJobs.getIfPresent(id);
+        if(job == null) throw new ApiException("No import found by id: " + id);
+        return job;
+    }
+
+    private void runImport(UserImportJob job, Path upload, String verificationUrlPrefix) {
+        job.start();
+        try (InputStream inputStream = Files.newInputStream(upload)) {
+            job.complete(importUsers(job.getFormat(), inputStream, verificationUrlPrefix));
+        } catch (ApiException exception) {
+            job.fail(exception.getMessage());
+        } catch (Exception exception) {
+            log.error("Import {} failed: {}", job.getId(), exception.getMessage());
+            job.fail("The import could not be completed. Please try again.");
+        } finally {
+            // Written again so a finished import stays visible for the whole retention
+            importJobs.put(job.getId(), job);
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException exception) {
+                log.warn("Could not delete import upload {}: {}", upload, exception.getMessage());
+            }
+        }
+    }
+
+    private UserImportReport importUsers(ExportFormat format, InputStream inputStream, String verificationUrlPrefix) throws IOException {
+        UserImportReport report = new UserImportReport();
+        List<ImportRow> chunk = new ArrayList<>(importChunkSize);
+        Consumer<ImportRow> collector = row -> {
+            chunk.add(row);
+            if(chunk.size() == importChunkSize) {
+                importChunk(chunk, report, verificationUrlPrefix);
+                chunk.clear();
+            }
+        };
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8));
+        switch (format) {
+            case NDJSON -> readNdjson(reader, report, collector);
+            case CSV -> readCsv(reader, report, collector);
+        }
+        importChunk(chunk, report, verificationUrlPrefix);
+        log.info("Imported {} of {} users, {} failed", report.getCreated(), report.getTotal(), report.getFailed());
+        return report;
+    }
+
+    private void readNdjson(BufferedReader reader, UserImportReport report, Consumer<ImportRow> collector) throws IOException {
+        long rowNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            rowNumber++;
+            if(line.isBlank()) continue;
+            report.addRow();
+            try {
+                collector.accept(new ImportRow(rowNumber, objectMapper.readValue(line, User.class)));
+            } catch (JsonProcessingException exception) {
+                report.addError(rowNumber, null, "Malformed JSON: " + exception.getOriginalMessage());
+            }
+        }
+    }
+
+    private void readCsv(BufferedReader reader, UserImportReport report, Consumer<ImportRow> collector) throws IOException {
+        CsvReader csvReader = new CsvReader(reader);
+        List<String> header = csvReader.readRecord();
+        if(header == null) return;
+        List<String> columns = header.stream().map(name -> name.trim().replace("_", "").toLowerCase()).toList();
+        int firstName = columns.indexOf("firstname");
+        int lastName = columns.indexOf("lastname");
+        int email = columns.indexOf("email");
+        int password = columns.indexOf("password");
+        if(firstName < 0 || lastName < 0 || email < 0 || password < 0) {
+            throw new ApiException("The CSV header must contain first_name, last_name, email and password");
+        }
+        long rowNumber = 0;
+        List<String> record;
+        while ((record = csvReader.readRecord()) != null) {
+            rowNumber++;
+            if(record.size() == 1 && record.get(0).isBlank()) continue;
+            report.addRow();
+            collector.accept(new ImportRow(rowNumber, User.builder()
+                    .firstName(field(record, firstName))
+                    .lastName(field(record, lastName))
+                    .email(field(record, email))
+                    .password(field(record, password))
+                    .build()));
+        }
+    }
+
+    private void importChunk(List<ImportRow> rows, UserImportReport report, String verificationUrlPrefix) {
+        if(rows.isEmpty()) return;
+        Map<String, ImportRow> accepted = new LinkedHashMap<>();
+        for (ImportRow row : rows) {
+            Set<ConstraintViolation<User>> violations = validator.validate(row.user());
+            if(!violations.isEmpty()) {
+                report.addError(row.number(), row.user().getEmail(), violations.iterator().next().getMessage());
+                continue;
+            }
+            String email = row.user().getEmail().trim().toLowerCase();
+            row.user().setEmail(email);
+            if(accepted.putIfAbsent(email, row) != null) report.addError(row.number(), email, "Duplicate email in this import");
+        }
+        // Duplicates are dropped before hashing so no BCrypt work is spent on them
+        for (String email : userBulkRepository.findExistingEmails(accepted.keySet())) {
+            ImportRow existing = accepted.remove(email.toLowerCase());
+            if(existing != null) report.addError(existing.number(), email, "Email already in use");
+        }
+        List<User> users = accepted.values().stream().map(ImportRow::user).toList();
+        List<String> hashes = hashPasswords(users.stream().map(User::getPassword).toList());
+        for (int index = 0; index < users.size(); index++) {
+            users.get(index).setPassword(hashes.get(index));
+        }
+        Map<String, String> failures = userBulkRepository.createUsers(users, verificationUrlPrefix);
+        failures.forEach((email, reason) -> report.addError(accepted.get(email).number(), email, reason));
+        report.addCreated(users.size() - failures.size());
+    }
+
+    private List<String> hashPasswords(List<String> rawPasswords) {
+        if(encoder instanceof BoundedBCryptPasswordEncoder boundedEncoder) {
+            return boundedEncoder.encodeAll(rawPasswords, hashingExecutor);
+        }
+        List<CompletableFuture<String>> hashes = rawPasswords.stream()
+                .map(rawPassword -> CompletableFuture.supplyAsync(() -> encoder.encode(rawPassword), hashingExecutor))
+                .toList();
+        return hashes.stream().map(CompletableFuture::join).toList();
+    }
+
+    private static String field(List<String> record, int index) {
+        return index < record.size() ? record.get(index).trim() : null;
+    }
+
+    private void writeNdjson(Writer writer) throws IOException {
+        ObjectWriter rowWriter = objectMapper.writerFor(UserDTO.class);
+        stream(user -> {
+            writer.write(rowWriter.writeValueAsString(user));
+            writer.write('\n');
+        });
+    }
+
+    private void writeCsv(Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        stream(user -> {
+            writer.write(String.valueOf(user.getId()));
+            writeCsvField(writer, user.getFirstName());
+            writeCsvField(writer, user.getLastName());
+            writeCsvField(writer, user.getEmail());
+            writeCsvField(writer, user.getAddress());
+            writeCsvField(writer, user.getPhone());
+            writeCsvField(writer, user.getTitle());
+            writeCsvField(writer, user.getImageUrl());
+            writeCsvField(writer, String.valueOf(user.isEnabled()));
+            writeCsvField(writer, String.valueOf(user.isNotLocked()));
+            writeCsvField(writer, String.valueOf(user.isUsingMfa()));
+            writeCsvField(writer, String.valueOf(user.getCreated_at()));
+            writeCsvField(writer, user.getRoleName());
+            writer.write('\n');
+        });
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        writer.write(',');
+        if(value == null) return;
+        if(!value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) value = "'" + value;
+        if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void stream(RowWriter rowWriter) throws IOException {
+        Consumer<UserDTO> consumer = user -> {
+            try {
+                rowWriter.write(user);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        };
+        try {
+            userBulkRepository.streamUsers(consumer);
+        } catch (UncheckedIOException exception) {
+            log.warn("User export aborted: {}", exception.getMessage());
+            throw exception.getCause();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingExecutor.shutdown();
+    }
+
+    private record ImportRow(long number, User user) {}
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(UserDTO user) throws IOException;
+    }
+}
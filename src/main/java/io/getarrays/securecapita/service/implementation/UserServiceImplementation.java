@@ -3,22 +3,33 @@ package io.getarrays.securecapita.service.implementation;
 import io.getarrays.securecapita.domain.Role;
 import io.getarrays.securecapita.domain.User;
 import io.getarrays.securecapita.dto.UserDTO;
+import io.getarrays.securecapita.dto.UserPage;
 import io.getarrays.securecapita.repository.RoleRepository;
 import io.getarrays.securecapita.repository.UserRepository;
 import io.getarrays.securecapita.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static io.getarrays.securecapita.dtomapper.UserDTOMapper.fromUser;
+import static io.getarrays.securecapita.utils.CursorUtils.decodeUserCursor;
+import static io.getarrays.securecapita.utils.CursorUtils.encodeUserCursor;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImplementation implements UserService {
+    private static final int MAX_PAGE_SIZE = 100;
     private final UserRepository<User> userRepository;
     private final RoleRepository<Role> roleRoleRepository;
+    private final BCryptPasswordEncoder encoder;
 
     @Override
     public UserDTO createUser(User user) {
+        // Hashed before the repository opens its transaction, so no connection is held while BCrypt runs
+        user.setPassword(encoder.encode(user.getPassword()));
         return mapToUserDTO(userRepository.create(user));
     }
 
@@ -58,6 +69,16 @@ public class UserServiceImplementation implements UserService {
         return mapToUserDTO(userRepository.verifyAccountKey(key));
     }
 
+    @Override
+    public UserPage listUsers(String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        // One extra row tells whether there is a next page without a COUNT query
+        List<UserDTO> users = new ArrayList<>(userRepository.listUsersAfter(decodeUserCursor(cursor), pageSize + 1));
+        if(users.size() <= pageSize) return new UserPage(users, null);
+        List<UserDTO> page = users.subList(0, pageSize);
+        return new UserPage(page, encodeUserCursor(page.get(pageSize - 1).getId()));
+    }
+
     private UserDTO mapToUserDTO(User user) {
         return fromUser(user, roleRoleRepository.getRoleByUserId(user.getId()));
     }
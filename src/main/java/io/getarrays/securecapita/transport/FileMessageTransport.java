@@ -0,0 +1,48 @@
+package io.getarrays.securecapita.transport;
+
+import io.getarrays.securecapita.domain.OutboxMessage;
+import io.getarrays.securecapita.enumeration.MessageChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.time.LocalDateTime.now;
+
+// Local stand-in for every channel: appends each message to a file instead of sending it
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "outbox.transport", havingValue = "file", matchIfMissing = true)
+public class FileMessageTransport implements MessageTransport {
+    private final Path path;
+
+    public FileMessageTransport(@Value("${outbox.file:${java.io.tmpdir}/securecapita-outbox.log}") Path path) {
+        this.path = path;
+        log.info("Outbox messages will be written to {}", path.toAbsolutePath());
+    }
+
+    @Override
+    public boolean supports(MessageChannel channel) {
+        return true;
+    }
+
+    @Override
+    public synchronized void send(OutboxMessage message) {
+        String entry = now() + " " + message.getChannel() + " to " + message.getRecipient()
+                + (message.getSubject() == null ? "" : " [" + message.getSubject() + "]")
+                + "\n" + message.getBody() + "\n\n";
+        try {
+            Files.writeString(path, entry, UTF_8, CREATE, APPEND);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package io.getarrays.securecapita.transport;
+
+import io.getarrays.securecapita.domain.OutboxMessage;
+import io.getarrays.securecapita.enumeration.MessageChannel;
+
+/**
+ * Delivers one outbox message. Only the outbox dispatcher calls transports, never a request thread.
+ * A failed delivery is reported by throwing; the dispatcher retries it with backoff.
+ */
+public interface MessageTransport {
+    boolean supports(MessageChannel channel);
+
+    void send(OutboxMessage message);
+}
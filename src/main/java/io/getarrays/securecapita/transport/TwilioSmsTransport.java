@@ -0,0 +1,26 @@
+package io.getarrays.securecapita.transport;
+
+import io.getarrays.securecapita.domain.OutboxMessage;
+import io.getarrays.securecapita.enumeration.MessageChannel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import static io.getarrays.securecapita.enumeration.MessageChannel.SMS;
+import static io.getarrays.securecapita.utils.SmsUtils.sendSMS;
+
+@Component
+@Order(1)
+@ConditionalOnProperty(name = "outbox.sms-transport", havingValue = "twilio")
+public class TwilioSmsTransport implements MessageTransport {
+
+    @Override
+    public boolean supports(MessageChannel channel) {
+        return channel == SMS;
+    }
+
+    @Override
+    public void send(OutboxMessage message) {
+        sendSMS(message.getRecipient(), message.getBody());
+    }
+}
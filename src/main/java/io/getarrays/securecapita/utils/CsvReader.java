@@ -0,0 +1,72 @@
+package io.getarrays.securecapita.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 record reader: comma separated, double quoted fields may contain commas,
+ * escaped quotes ("") and line breaks. Reads one record at a time so input of any size can be streamed.
+ */
+public class CsvReader {
+    private final Reader reader;
+    private int peeked = -2;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /* Returns the fields of the next record, or null at the end of the input */
+    public List<String> readRecord() throws IOException {
+        int next = read();
+        if(next == -1) return null;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if(quoted) {
+                if(next == -1) break;
+                if(next == '"') {
+                    if(peek() == '"') {
+                        field.append('"');
+                        read();
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) next);
+                }
+            } else if(next == '"' && field.length() == 0) {
+                quoted = true;
+            } else if(next == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if(next == '\n' || next == -1) {
+                break;
+            } else if(next == '\r') {
+                if(peek() == '\n') read();
+                break;
+            } else {
+                field.append((char) next);
+            }
+            next = read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private int read() throws IOException {
+        if(peeked != -2) {
+            int value = peeked;
+            peeked = -2;
+            return value;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if(peeked == -2) peeked = reader.read();
+        return peeked;
+    }
+}
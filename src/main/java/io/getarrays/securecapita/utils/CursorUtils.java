@@ -0,0 +1,29 @@
+package io.getarrays.securecapita.utils;
+
+import io.getarrays.securecapita.exception.ApiException;
+
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+// Opaque continuation cursors for keyset pagination; clients must not rely on what is inside
+public class CursorUtils {
+
+    private static final String USER_PREFIX = "u:";
+
+    public static String encodeUserCursor(Long lastUserId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((USER_PREFIX + lastUserId).getBytes(UTF_8));
+    }
+
+    public static long decodeUserCursor(String cursor) {
+        if(isBlank(cursor)) return 0L;
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+            if(!decoded.startsWith(USER_PREFIX)) throw new ApiException("Invalid cursor. Please start from the first page.");
+            return Long.parseLong(decoded.substring(USER_PREFIX.length()));
+        } catch (IllegalArgumentException exception) {
+            throw new ApiException("Invalid cursor. Please start from the first page.");
+        }
+    }
+}
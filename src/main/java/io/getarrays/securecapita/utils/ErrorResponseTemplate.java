@@ -0,0 +1,107 @@
+package io.getarrays.securecapita.utils;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.getarrays.securecapita.domain.HttpResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.LocalDateTime.now;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * {@link HttpResponse} error body serialized once by Jackson and kept as byte fragments.
+ * Each response only writes the current timestamp, and the escaped reason when the template
+ * was created without a fixed one, between the fragments straight to the servlet output stream.
+ */
+public class ErrorResponseTemplate {
+
+    private static final ObjectWriter WRITER = new ObjectMapper().writerFor(HttpResponse.class);
+    private static final String TIMESTAMP_MARKER = "__timestamp__";
+    private static final String REASON_MARKER = "__reason__";
+
+    private final HttpStatus status;
+    private final boolean dynamicReason;
+    private final byte[][] fragments;
+    // true when the slot after fragments[i] takes the timestamp, false when it takes the reason
+    private final boolean[] timestampSlots;
+
+    private ErrorResponseTemplate(HttpStatus status, String reason) {
+        this.status = status;
+        this.dynamicReason = reason == null;
+        String rendered = render(status, reason);
+        List<Integer> positions = new ArrayList<>();
+        positions.add(rendered.indexOf(TIMESTAMP_MARKER));
+        if(dynamicReason) positions.add(rendered.indexOf(REASON_MARKER));
+        positions.sort(Integer::compare);
+
+        this.fragments = new byte[positions.size() + 1][];
+        this.timestampSlots = new boolean[positions.size()];
+        int start = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            int position = positions.get(i);
+            boolean timestamp = rendered.startsWith(TIMESTAMP_MARKER, position);
+            fragments[i] = rendered.substring(start, position).getBytes(UTF_8);
+            timestampSlots[i] = timestamp;
+            start = position + (timestamp ? TIMESTAMP_MARKER : REASON_MARKER).length();
+        }
+        fragments[positions.size()] = rendered.substring(start).getBytes(UTF_8);
+    }
+
+    public static ErrorResponseTemplate of(HttpStatus status, String reason) {
+        return new ErrorResponseTemplate(status, reason);
+    }
+
+    public static ErrorResponseTemplate of(HttpStatus status) {
+        return new ErrorResponseTemplate(status, null);
+    }
+
+    public void write(HttpServletResponse response) throws IOException {
+        write(response, null);
+    }
+
+    public void write(HttpServletResponse response, String reason) throws IOException {
+        response.setContentType(APPLICATION_JSON_VALUE);
+        response.setStatus(status.value());
+        OutputStream out = response.getOutputStream();
+        if(dynamicReason && reason == null) {
+            // A null reason is left out of the body by NON_DEFAULT, which the template cannot express
+            WRITER.writeValue(out, HttpResponse.builder().timeStamp(now().toString()).status(status).statusCode(status.value()).build());
+            out.flush();
+            return;
+        }
+        byte[] timestamp = now().toString().getBytes(US_ASCII);
+        byte[] escapedReason = dynamicReason ? JsonStringEncoder.getInstance().quoteAsUTF8(reason) : null;
+        int length = 0;
+        for (byte[] fragment : fragments) length += fragment.length;
+        for (boolean timestampSlot : timestampSlots) length += timestampSlot ? timestamp.length : escapedReason.length;
+        response.setContentLength(length);
+        for (int i = 0; i < timestampSlots.length; i++) {
+            out.write(fragments[i]);
+            out.write(timestampSlots[i] ? timestamp : escapedReason);
+        }
+        out.write(fragments[fragments.length - 1]);
+        out.flush();
+    }
+
+    private static String render(HttpStatus status, String reason) {
+        try {
+            return WRITER.writeValueAsString(HttpResponse.builder()
+                    .timeStamp(TIMESTAMP_MARKER)
+                    .reason(reason == null ? REASON_MARKER : reason)
+                    .status(status)
+                    .statusCode(status.value())
+                    .build());
+        } catch (IOException exception) {
+            throw new IllegalStateException("Cannot render error response template", exception);
+        }
+    }
+}
@@ -2,25 +2,23 @@ package io.getarrays.securecapita.utils;
 
 import com.auth0.jwt.exceptions.InvalidClaimException;
 import com.auth0.jwt.exceptions.TokenExpiredException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.getarrays.securecapita.exception.ApiException;
+import io.micrometer.core.instrument.Metrics;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import io.getarrays.securecapita.domain.HttpResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.LockedException;
 
-import java.io.OutputStream;
-
-import static java.time.LocalDateTime.now;
 import static org.springframework.http.HttpStatus.*;
-import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 @Slf4j
 public class ExceptionUtils {
 
+    private static final ErrorResponseTemplate BAD_REQUEST_RESPONSE = ErrorResponseTemplate.of(BAD_REQUEST);
+    private static final ErrorResponseTemplate INTERNAL_SERVER_ERROR_RESPONSE = ErrorResponseTemplate.of(INTERNAL_SERVER_ERROR, "An occurred. Please try again");
+
     public static void processError(HttpServletRequest request, HttpServletResponse response, Exception exception){
         if(exception instanceof ApiException ||
                 exception instanceof DisabledException ||
@@ -29,23 +27,23 @@ public class ExceptionUtils {
                 exception instanceof InvalidClaimException ||
                 exception instanceof TokenExpiredException){
 
-            HttpResponse httpResponse = getHttpResponse(response, exception.getMessage(), BAD_REQUEST);
-            wrireResponse(response, httpResponse);
+            countError(exception, BAD_REQUEST);
+            wrireResponse(response, BAD_REQUEST_RESPONSE, exception.getMessage());
         }else {
-            HttpResponse httpResponse = getHttpResponse(response, "An occurred. Please try again", INTERNAL_SERVER_ERROR);
-            wrireResponse(response, httpResponse);
+            countError(exception, INTERNAL_SERVER_ERROR);
+            wrireResponse(response, INTERNAL_SERVER_ERROR_RESPONSE, null);
         }
         log.error(exception.getMessage());
     }
 
-    private static void wrireResponse(HttpServletResponse response, HttpResponse httpResponse ){
+    // processError is static, so the counter goes through the global registry Spring Boot binds to
+    private static void countError(Exception exception, HttpStatus status) {
+        Metrics.counter("securecapita.errors", "exception", exception.getClass().getSimpleName(), "status", String.valueOf(status.value())).increment();
+    }
 
-        OutputStream out;
+    private static void wrireResponse(HttpServletResponse response, ErrorResponseTemplate template, String reason){
         try{
-             out = response.getOutputStream();
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.writeValue(out, httpResponse);
-            out.flush();
+            template.write(response, reason);
         }catch (Exception exception){
             log.error(exception.getMessage());
             exception.printStackTrace();
@@ -55,20 +53,5 @@ public class ExceptionUtils {
 
     }
 
-    private static HttpResponse getHttpResponse(HttpServletResponse response, String message, HttpStatus httpStatus){
-
-        HttpResponse httpResponse = HttpResponse.builder()
-                .timeStamp(now().toString())
-                .reason(message)
-                .status(httpStatus)
-                .statusCode(httpStatus.value())
-                .build();
-        response.setContentType(APPLICATION_JSON_VALUE);
-        response.setStatus(httpStatus.value());
-
-        return httpResponse;
-
-    }
-
 
 }
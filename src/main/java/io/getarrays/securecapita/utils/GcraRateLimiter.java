@@ -0,0 +1,33 @@
+package io.getarrays.securecapita.utils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket expressed as the Generic Cell Rate Algorithm: the whole bucket state is one
+ * "theoretical arrival time", so a request is admitted with a single CAS and no refill thread.
+ * Allows {@code burst} requests at once and then one per {@code period / rate}.
+ */
+public class GcraRateLimiter {
+    private static final long ORIGIN = System.nanoTime();
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong();
+
+    public GcraRateLimiter(int rate, Duration period, int burst) {
+        this.emissionIntervalNanos = period.toNanos() / rate;
+        this.toleranceNanos = emissionIntervalNanos * (Math.max(burst, 1) - 1);
+    }
+
+    /* Returns 0 when the request is admitted, otherwise how many nanoseconds until it would be */
+    public long tryAcquire() {
+        long now = System.nanoTime() - ORIGIN;
+        while (true) {
+            long current = theoreticalArrival.get();
+            long base = Math.max(current, now);
+            long admitAt = base - toleranceNanos;
+            if(now < admitAt) return admitAt - now;
+            if(theoreticalArrival.compareAndSet(current, base + emissionIntervalNanos)) return 0;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.getarrays.securecapita.utils;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: timeouts are hashed into a ring of buckets by deadline tick, so scheduling
+ * is O(1) and each tick only scans one bucket. Timeouts further away than one revolution stay in
+ * their bucket until the wheel comes round to their tick. Expiry may run up to one tick late.
+ * Any thread may schedule; {@link #advance()} must only be called from a single ticker thread.
+ */
+public class HashedTimingWheel<T> {
+    private final Queue<Timeout<T>>[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final Consumer<T> onExpiry;
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(Duration tick, int wheelSize, Consumer<T> onExpiry) {
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        this.buckets = new Queue[size];
+        for (int index = 0; index < size; index++) {
+            buckets[index] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.tickNanos = tick.toNanos();
+        this.onExpiry = onExpiry;
+    }
+
+    public void schedule(T item, Duration delay) {
+        long deadlineTick = (System.nanoTime() - startNanos + delay.toNanos() + tickNanos - 1) / tickNanos;
+        // Never hash into a bucket the ticker has already passed, or the timeout waits a whole revolution
+        deadlineTick = Math.max(deadlineTick, currentTick + 1);
+        buckets[(int) (deadlineTick & mask)].add(new Timeout<>(item, deadlineTick));
+    }
+
+    public void advance() {
+        long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+        long tick = currentTick;
+        while (tick <= nowTick) {
+            Iterator<Timeout<T>> timeouts = buckets[(int) (tick & mask)].iterator();
+            while (timeouts.hasNext()) {
+                Timeout<T> timeout = timeouts.next();
+                if(timeout.deadlineTick() <= tick) {
+                    timeouts.remove();
+                    onExpiry.accept(timeout.item());
+                }
+            }
+            tick++;
+            currentTick = tick;
+        }
+    }
+
+    private record Timeout<T>(T item, long deadlineTick) {}
+}
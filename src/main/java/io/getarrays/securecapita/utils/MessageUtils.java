@@ -0,0 +1,40 @@
+package io.getarrays.securecapita.utils;
+
+import io.getarrays.securecapita.domain.OutboxMessage;
+import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.dto.UserDTO;
+
+import static io.getarrays.securecapita.enumeration.MessageChannel.EMAIL;
+import static io.getarrays.securecapita.enumeration.MessageChannel.SMS;
+
+public class MessageUtils {
+
+    public static OutboxMessage accountVerificationEmail(User user, String verificationUrl) {
+        return OutboxMessage.builder()
+                .channel(EMAIL)
+                .recipient(user.getEmail())
+                .subject("SecureCapita - Account Verification")
+                .body("Hello " + user.getFirstName() + ",\n\nPlease click the link below to verify your account.\n\n" + verificationUrl)
+                .dedupeKey("ACCOUNT:" + user.getId())
+                .build();
+    }
+
+    public static OutboxMessage resetPasswordEmail(User user, String key, String verificationUrl) {
+        return OutboxMessage.builder()
+                .channel(EMAIL)
+                .recipient(user.getEmail())
+                .subject("SecureCapita - Reset Password Request")
+                .body("Hello " + user.getFirstName() + ",\n\nPlease click the link below to reset your password. The link expires in 24 hours.\n\n" + verificationUrl)
+                .dedupeKey("PASSWORD:" + key)
+                .build();
+    }
+
+    public static OutboxMessage verificationCodeSms(UserDTO user, String verificationCode) {
+        return OutboxMessage.builder()
+                .channel(SMS)
+                .recipient(user.getPhone())
+                .body("FROM: SecureCapita \nVerification code\n" + verificationCode)
+                .dedupeKey("MFA:" + user.getId() + ":" + verificationCode)
+                .build();
+    }
+}
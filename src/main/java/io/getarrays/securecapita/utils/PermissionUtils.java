@@ -0,0 +1,29 @@
+package io.getarrays.securecapita.utils;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Arrays.stream;
+
+public class PermissionUtils {
+
+    // Keyed by the comma separated permission string of a role, so there is one immutable list per role
+    private static final Map<String, List<GrantedAuthority>> AUTHORITIES = new ConcurrentHashMap<>();
+
+    public static List<GrantedAuthority> getAuthorities(String permission) {
+        return AUTHORITIES.computeIfAbsent(permission, PermissionUtils::toAuthorities);
+    }
+
+    public static void retainAll(Collection<String> permissions) {
+        AUTHORITIES.keySet().retainAll(permissions);
+    }
+
+    private static List<GrantedAuthority> toAuthorities(String permission) {
+        return stream(permission.split(",")).<GrantedAuthority>map(SimpleGrantedAuthority::new).toList();
+    }
+}
@@ -0,0 +1,31 @@
+package io.getarrays.securecapita.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.apache.commons.lang3.StringUtils.abbreviate;
+import static org.springframework.http.HttpHeaders.USER_AGENT;
+
+public class RequestUtils {
+    private static final int MAX_LENGTH = 100;
+
+    /* The request bound to the current thread, or null outside a request */
+    public static HttpServletRequest getCurrentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servletAttributes ? servletAttributes.getRequest() : null;
+    }
+
+    /* The client address. Tomcat replaces the remote address with X-Forwarded-For only when the request came
+       through one of server.tomcat.remoteip.internal-proxies, so a client cannot choose its own address here */
+    public static String getIpAddress(HttpServletRequest request) {
+        if(request == null) return null;
+        return abbreviate(request.getRemoteAddr(), MAX_LENGTH);
+    }
+
+    public static String getDevice(HttpServletRequest request) {
+        if(request == null) return null;
+        return abbreviate(request.getHeader(USER_AGENT), MAX_LENGTH);
+    }
+}
@@ -0,0 +1,52 @@
+package io.getarrays.securecapita.utils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sliding window approximated from the current and the previous fixed window, with the previous
+ * count weighted by how much of it still overlaps the window. The state is one immutable snapshot
+ * swapped with CAS, so increments from concurrent requests are never lost and never block.
+ */
+public class SlidingWindowCounter {
+    private static final long ORIGIN = System.nanoTime();
+    private final long windowNanos;
+    private final AtomicReference<Window> window = new AtomicReference<>(new Window(0, 0, 0));
+
+    public SlidingWindowCounter(Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    /* Adds one event and returns the estimated number of events in the last window, including it */
+    public long incrementAndGet() {
+        long now = System.nanoTime() - ORIGIN;
+        long windowIndex = now / windowNanos;
+        while (true) {
+            Window current = window.get();
+            Window next = current.roll(windowIndex).increment();
+            if(window.compareAndSet(current, next)) return estimate(next, now);
+        }
+    }
+
+    public long get() {
+        long now = System.nanoTime() - ORIGIN;
+        return estimate(window.get().roll(now / windowNanos), now);
+    }
+
+    private long estimate(Window current, long now) {
+        double elapsedFraction = (double) (now % windowNanos) / windowNanos;
+        return current.count() + (long) Math.floor(current.previousCount() * (1 - elapsedFraction));
+    }
+
+    private record Window(long index, long count, long previousCount) {
+        Window roll(long windowIndex) {
+            if(windowIndex == index) return this;
+            if(windowIndex == index + 1) return new Window(windowIndex, 0, count);
+            return new Window(windowIndex, 0, 0);
+        }
+
+        Window increment() {
+            return new Window(index, count + 1, previousCount);
+        }
+    }
+}
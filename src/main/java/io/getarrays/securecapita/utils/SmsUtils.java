@@ -18,10 +18,20 @@ public class SmsUtils {
     public static final String TOKEN_KEY = dotenv.get("TOKEN_KEY");
 
     public static void sendSMS(String to, String messageBody){
-        Twilio.init(SID_KEY,TOKEN_KEY);
+        TwilioHolder.init();
 
         Message message  = creator(new PhoneNumber("+" + to), new PhoneNumber(FROM_NUMBER), messageBody).create();
         System.out.println(message);
     }
 
+    // Initialization-on-demand holder: Twilio.init runs once, on the first SMS, instead of per message
+    private static class TwilioHolder {
+        static {
+            Twilio.init(SID_KEY, TOKEN_KEY);
+        }
+
+        static void init() {
+        }
+    }
+
 }
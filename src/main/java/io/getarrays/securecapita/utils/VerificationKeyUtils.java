@@ -0,0 +1,23 @@
+package io.getarrays.securecapita.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// Verification keys are stored only as SHA-256, the same bytes MySQL returns for UNHEX(SHA2(key, 256))
+public class VerificationKeyUtils {
+
+    public static String newKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    public static byte[] hashKey(String key) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(key.getBytes(UTF_8));
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
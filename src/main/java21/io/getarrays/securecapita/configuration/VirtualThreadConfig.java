@@ -0,0 +1,26 @@
+package io.getarrays.securecapita.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every Tomcat request, and therefore every repository call made on it, on its own virtual thread.
+ * Only compiled with the virtual-threads Maven profile and only active with the 'virtual' Spring profile.
+ * BCrypt keeps running on the bounded platform thread pool of the password encoder.
+ */
+@Configuration
+@Profile("virtual")
+@Slf4j
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer() {
+        log.info("Serving requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * One-time migration for databases created before logins were throttled.
+ * Throttle locks record when they end in locked_until; LoginThrottle lifts them once that time has passed.
+ * Run it once, before starting the new version.
+ */
+
+ALTER TABLE Users
+    ADD COLUMN locked_until DATETIME DEFAULT NULL,
+    ADD INDEX IX_Users_Locked_Until (locked_until);
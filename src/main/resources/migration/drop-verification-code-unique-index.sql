@@ -0,0 +1,7 @@
+/*
+ * One-time migration for databases created before verification codes were upserted.
+ * INSERT ... ON DUPLICATE KEY UPDATE fires on any unique key, so a code that collided with another
+ * user's code would overwrite that user's row. Codes are only looked up together with user_id.
+ */
+
+ALTER TABLE TwoFactorVerifications DROP INDEX UQ_TwoFactorVerifications_Url;
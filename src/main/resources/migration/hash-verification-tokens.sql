@@ -0,0 +1,26 @@
+/*
+ * One-time migration for databases created before verification keys were hashed.
+ * The key is the last path segment of the stored URL; its SHA-256 matches VerificationKeyUtils.hashKey,
+ * so links already sent keep working. Run it once, before starting the new version.
+ */
+
+ALTER TABLE AccountVerifications ADD COLUMN token_hash BINARY(32) NULL AFTER user_id;
+
+UPDATE AccountVerifications SET token_hash = UNHEX(SHA2(SUBSTRING_INDEX(url, '/', -1), 256));
+
+ALTER TABLE AccountVerifications
+    MODIFY token_hash BINARY(32) NOT NULL,
+    ADD CONSTRAINT UQ_AccountVerifications_Token_Hash UNIQUE (token_hash),
+    DROP INDEX UQ_AccountVerifications_Url,
+    DROP COLUMN url;
+
+
+ALTER TABLE ResetPasswordVerifications ADD COLUMN token_hash BINARY(32) NULL AFTER user_id;
+
+UPDATE ResetPasswordVerifications SET token_hash = UNHEX(SHA2(SUBSTRING_INDEX(url, '/', -1), 256));
+
+ALTER TABLE ResetPasswordVerifications
+    MODIFY token_hash BINARY(32) NOT NULL,
+    ADD CONSTRAINT UQ_ResetPasswordVerifications_Token_Hash UNIQUE (token_hash),
+    DROP INDEX UQ_ResetPasswordVerifications_Url,
+    DROP COLUMN url;
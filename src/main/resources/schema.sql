@@ -26,7 +26,9 @@ CREATE TABLE Users
     using_mfa   BOOLEAN DEFAULT FALSE,
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     image_url   VARCHAR(255) DEFAULT 'https://cdn-icons-png.flaticon.com/512/149/149071.png',
-    CONSTRAINT UQ_Users_Email UNIQUE (email)
+    locked_until DATETIME DEFAULT NULL,
+    CONSTRAINT UQ_Users_Email UNIQUE (email),
+    INDEX IX_Users_Locked_Until (locked_until)
 
 );
 
@@ -67,6 +69,17 @@ CREATE TABLE Events
 
 );
 
+INSERT INTO Events (type, description) VALUES
+    ('LOGIN_ATTEMPT', 'You tried to log in'),
+    ('LOGIN_ATTEMPT_FAILURE', 'You tried to log in and you failed'),
+    ('LOGIN_ATTEMPT_SUCCESS', 'You tried to log in and you succeeded'),
+    ('PROFILE_UPDATE', 'You updated your profile information'),
+    ('PROFILE_PICTURE_UPDATE', 'You updated your profile picture'),
+    ('ROLE_UPDATE', 'You updated your role and permissions'),
+    ('ACCOUNT_SETTING_UPDATE', 'You updated your account settings'),
+    ('PASSWORD_UPDATE', 'You updated your password'),
+    ('MFA_UPDATE', 'You updated your MFA settings');
+
 DROP TABLE IF EXISTS UserEvents;
 
 CREATE TABLE UserEvents
@@ -78,7 +91,8 @@ CREATE TABLE UserEvents
     ip_address VARCHAR(100) DEFAULT NULL,
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES Users (id) ON DELETE CASCADE ON UPDATE CASCADE ,
-    FOREIGN KEY (event_id) REFERENCES Events (id) ON DELETE RESTRICT ON UPDATE CASCADE
+    FOREIGN KEY (event_id) REFERENCES Events (id) ON DELETE RESTRICT ON UPDATE CASCADE,
+    INDEX IX_UserEvents_User_Id_Created_At (user_id, created_at)
 );
 
 DROP TABLE IF EXISTS AccountVerifications;
@@ -87,11 +101,12 @@ CREATE TABLE AccountVerifications
 (
     id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
     user_id BIGINT UNSIGNED NOT NULL,
-    url VARCHAR(255) NOT NULL ,
-    -- date DATETIME NOT NULL
+    token_hash BINARY(32) NOT NULL , -- SHA-256 of the key in the emailed link
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES Users (id) ON DELETE CASCADE ON UPDATE CASCADE ,
     CONSTRAINT UQ_AccountVerifications_User_Id UNIQUE (user_id),
-    CONSTRAINT UQ_AccountVerifications_Url UNIQUE (url)
+    CONSTRAINT UQ_AccountVerifications_Token_Hash UNIQUE (token_hash),
+    INDEX IX_AccountVerifications_Created_At (created_at)
 );
 
 
@@ -101,11 +116,12 @@ CREATE TABLE ResetPasswordVerifications
 (
     id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
     user_id BIGINT UNSIGNED NOT NULL,
-    url VARCHAR(255) NOT NULL ,
+    token_hash BINARY(32) NOT NULL , -- SHA-256 of the key in the emailed link
     expiration_date DATETIME NOT NULL ,
     FOREIGN KEY (user_id) REFERENCES Users (id) ON DELETE CASCADE ON UPDATE CASCADE ,
     CONSTRAINT UQ_ResetPasswordVerifications_User_Id UNIQUE (user_id),
-    CONSTRAINT UQ_ResetPasswordVerifications_Url UNIQUE (url)
+    CONSTRAINT UQ_ResetPasswordVerifications_Token_Hash UNIQUE (token_hash),
+    INDEX IX_ResetPasswordVerifications_Expiration_Date (expiration_date)
 );
 
 
@@ -119,6 +135,45 @@ CREATE TABLE TwoFactorVerifications
     code VARCHAR(10) NOT NULL ,
     expiration_date DATETIME NOT NULL ,
     FOREIGN KEY (user_id) REFERENCES Users (id) ON DELETE CASCADE ON UPDATE CASCADE ,
-    CONSTRAINT UQ_TwoFactorVerifications_User_Id UNIQUE (user_id),
-    CONSTRAINT UQ_TwoFactorVerifications_Url UNIQUE (code)
-);
\ No newline at end of file
+    CONSTRAINT UQ_TwoFactorVerifications_User_Id UNIQUE (user_id), -- the upsert of a new code relies on this being the only unique key
+    INDEX IX_TwoFactorVerifications_Expiration_Date (expiration_date)
+);
+
+
+DROP TABLE IF EXISTS Outbox;
+
+CREATE TABLE Outbox
+(
+    id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    channel VARCHAR(10) NOT NULL CHECK ( channel IN ('EMAIL', 'SMS') ),
+    recipient VARCHAR(100) NOT NULL,
+    subject VARCHAR(255) DEFAULT NULL,
+    body TEXT NOT NULL,
+    dedupe_key VARCHAR(100) NOT NULL,
+    status VARCHAR(10) NOT NULL DEFAULT 'PENDING' CHECK ( status IN ('PENDING', 'SENDING', 'SENT', 'FAILED') ),
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimed_by VARCHAR(64) DEFAULT NULL,
+    claimed_at DATETIME DEFAULT NULL,
+    last_error VARCHAR(255) DEFAULT NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    sent_at DATETIME DEFAULT NULL,
+    CONSTRAINT UQ_Outbox_Dedupe_Key UNIQUE (dedupe_key),
+    INDEX IX_Outbox_Status_Next_Attempt (status, next_attempt_at),
+    INDEX IX_Outbox_Claimed_By (claimed_by)
+);
+
+
+DROP TABLE IF EXISTS RevokedTokens;
+
+CREATE TABLE RevokedTokens
+(
+    id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    token_key VARCHAR(120) NOT NULL, -- 'jti:<token id>' for one token, 'sub:<email>' for every token issued to the user before issued_before
+    issued_before BIGINT DEFAULT NULL,
+    expires_at BIGINT NOT NULL, -- epoch seconds, the latest expiry of the tokens the row revokes
+    created_at BIGINT NOT NULL,
+    CONSTRAINT UQ_RevokedTokens_Token_Key UNIQUE (token_key),
+    INDEX IX_RevokedTokens_Expires_At (expires_at),
+    INDEX IX_RevokedTokens_Created_At (created_at)
+);
@@ -0,0 +1,87 @@
+package io.getarrays.securecapita.benchmark;
+
+import io.getarrays.securecapita.domain.Role;
+import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.domain.UserPrincipal;
+import io.getarrays.securecapita.provider.JwtKeyRing;
+import io.getarrays.securecapita.provider.TokenProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static java.util.Map.entry;
+
+final class BenchmarkFixtures {
+
+    static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2023, 1, 15, 10, 30);
+
+    private BenchmarkFixtures() {}
+
+    static User user() {
+        return User.builder()
+                .id(42L)
+                .firstName("Jane")
+                .lastName("Doe")
+                .email("jane.doe@example.com")
+                .password("$2a$12$KIXQJ7v0pQ1Zr6H7d3cZ6uX0m7b9bq1bG5l1lJv2yZx4Z5q6r7s8t")
+                .address("1 Main Street")
+                .phone("5145550100")
+                .title("Accountant")
+                .bio("Manages the invoices of the east region")
+                .imageUrl("https://cdn-icons-png.flaticon.com/512/149/149071.png")
+                .enabled(true)
+                .isNotLocked(true)
+                .isUsingMfa(false)
+                .created_at(CREATED_AT)
+                .build();
+    }
+
+    static Role role() {
+        return Role.builder().id(1L).name("ROLE_USER").permission("READ:USER,READ:CUSTOMER").build();
+    }
+
+    static UserPrincipal userPrincipal() {
+        return new UserPrincipal(user(), role());
+    }
+
+    static TokenProvider tokenProvider() {
+        TokenProvider tokenProvider = new TokenProvider(null, null, new SimpleMeterRegistry(), JwtKeyRing.hmac(SECRET));
+        tokenProvider.init();
+        return tokenProvider;
+    }
+
+    /**
+     * ResultSet stub holding one Users row. Every call goes through a dynamic proxy, so its fixed
+     * dispatch cost is part of the mapRow numbers; compare results of this benchmark with each other only.
+     */
+    static ResultSet userResultSet() {
+        User user = user();
+        Map<String, Object> columns = Map.ofEntries(
+                entry("id", user.getId()),
+                entry("first_name", user.getFirstName()),
+                entry("last_name", user.getLastName()),
+                entry("email", user.getEmail()),
+                entry("password", user.getPassword()),
+                entry("address", user.getAddress()),
+                entry("phone", user.getPhone()),
+                entry("title", user.getTitle()),
+                entry("bio", user.getBio()),
+                entry("image_url", user.getImageUrl()),
+                entry("enabled", user.isEnabled()),
+                entry("using_mfa", user.isUsingMfa()),
+                entry("non_locked", user.isNotLocked()),
+                entry("created_at", Timestamp.valueOf(user.getCreated_at())));
+        return (ResultSet) Proxy.newProxyInstance(BenchmarkFixtures.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getLong" -> ((Number) columns.get(args[0])).longValue();
+                    case "getString", "getBoolean", "getTimestamp" -> columns.get(args[0]);
+                    case "wasNull" -> false;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
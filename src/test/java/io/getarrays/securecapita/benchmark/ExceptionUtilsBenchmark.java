@@ -0,0 +1,65 @@
+package io.getarrays.securecapita.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import io.getarrays.securecapita.exception.ApiException;
+import io.getarrays.securecapita.utils.ExceptionUtils;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static io.getarrays.securecapita.utils.ExceptionUtils.processError;
+
+/**
+ * Error serialization into an in-memory response. Each operation includes allocating the
+ * MockHttpServletResponse, which is the same for every variant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExceptionUtilsBenchmark {
+
+    private MockHttpServletRequest request;
+    private ApiException apiException;
+    private TokenExpiredException tokenExpiredException;
+    private IllegalStateException unexpectedException;
+
+    @Setup
+    public void setUp() {
+        // processError logs every call; keep logging out of the measurement
+        ((Logger) LoggerFactory.getLogger(ExceptionUtils.class)).setLevel(Level.OFF);
+        request = new MockHttpServletRequest();
+        apiException = new ApiException("Code is invalid. Please Try again");
+        tokenExpiredException = new TokenExpiredException("The Token has expired on 2023-01-15T10:30:00Z.", Instant.parse("2023-01-15T10:30:00Z"));
+        unexpectedException = new IllegalStateException("unexpected");
+    }
+
+    @Benchmark
+    public MockHttpServletResponse apiException() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        processError(request, response, apiException);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse tokenExpired() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        processError(request, response, tokenExpiredException);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse unexpectedError() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        processError(request, response, unexpectedException);
+        return response;
+    }
+}
@@ -0,0 +1,78 @@
+package io.getarrays.securecapita.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+
+/**
+ * Closed-loop load driver used to compare the platform thread and virtual thread modes.
+ * Start one instance per mode (the second with the 'virtual' profile) and run this against both:
+ *
+ * <pre>
+ * java -cp target/test-classes:... io.getarrays.securecapita.benchmark.ThreadModelLoadComparison \
+ *      http://localhost:8080/user/profile "$ACCESS_TOKEN" 1000 60
+ * </pre>
+ *
+ * It keeps the given number of requests in flight for the given number of seconds, then prints
+ * throughput, error count and latency percentiles.
+ */
+public class ThreadModelLoadComparison {
+
+    private static final int MAX_SAMPLES = 5_000_000;
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(args[0]);
+        String token = args[1];
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(10)).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).header(AUTHORIZATION, "Bearer " + token).timeout(Duration.ofSeconds(30)).GET().build();
+
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[MAX_SAMPLES];
+        AtomicInteger samples = new AtomicInteger();
+        LongAdder errors = new LongAdder();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        long start = System.nanoTime();
+
+        while (System.nanoTime() < deadline) {
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, throwable) -> {
+                if (throwable != null || response.statusCode() >= 400) {
+                    errors.increment();
+                } else {
+                    int index = samples.getAndIncrement();
+                    if (index < MAX_SAMPLES) latencies[index] = System.nanoTime() - sent;
+                }
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(concurrency);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        int count = Math.min(samples.get(), MAX_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("concurrency=%d duration=%.1fs ok=%d errors=%d throughput=%.1f req/s%n",
+                concurrency, elapsedSeconds, samples.get(), errors.sum(), samples.get() / elapsedSeconds);
+        System.out.printf("p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                count == 0 ? 0 : sorted[count - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
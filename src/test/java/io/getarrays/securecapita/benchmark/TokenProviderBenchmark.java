@@ -0,0 +1,60 @@
+package io.getarrays.securecapita.benchmark;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.getarrays.securecapita.domain.UserPrincipal;
+import io.getarrays.securecapita.provider.TokenProvider;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenProviderBenchmark {
+
+    private TokenProvider tokenProvider;
+    private UserPrincipal userPrincipal;
+    private MockHttpServletRequest request;
+    private String accessToken;
+    private DecodedJWT decodedJWT;
+
+    @Setup
+    public void setUp() {
+        tokenProvider = BenchmarkFixtures.tokenProvider();
+        userPrincipal = BenchmarkFixtures.userPrincipal();
+        request = new MockHttpServletRequest();
+        accessToken = tokenProvider.createAccessToken(userPrincipal);
+        decodedJWT = tokenProvider.verifyToken(accessToken, request);
+    }
+
+    @Benchmark
+    public String createAccessToken() {
+        return tokenProvider.createAccessToken(userPrincipal);
+    }
+
+    @Benchmark
+    public String createRefreshToken() {
+        return tokenProvider.createRefreshToken(userPrincipal);
+    }
+
+    @Benchmark
+    public String getSubject() {
+        return tokenProvider.getSubject(accessToken, request);
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> verifyAndGetAuthorities() {
+        return tokenProvider.getAuthorities(tokenProvider.verifyToken(accessToken, request));
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> getAuthoritiesFromDecodedToken() {
+        return tokenProvider.getAuthorities(decodedJWT);
+    }
+}
@@ -0,0 +1,90 @@
+package io.getarrays.securecapita.benchmark;
+
+import io.getarrays.securecapita.domain.Role;
+import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.domain.UserPrincipal;
+import io.getarrays.securecapita.dto.UserDTO;
+import io.getarrays.securecapita.dtomapper.UserDTOMapper;
+import io.getarrays.securecapita.rowmapper.UserRowMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.BeanUtils;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserMappingBenchmark {
+
+    private User user;
+    private Role role;
+    private UserDTO userDTO;
+    private UserPrincipal userPrincipal;
+    private UserRowMapper userRowMapper;
+    private ResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        user = BenchmarkFixtures.user();
+        role = BenchmarkFixtures.role();
+        userDTO = UserDTOMapper.fromUser(user, role);
+        userPrincipal = BenchmarkFixtures.userPrincipal();
+        userRowMapper = new UserRowMapper();
+        resultSet = BenchmarkFixtures.userResultSet();
+    }
+
+    @Benchmark
+    public UserDTO fromUser() {
+        return UserDTOMapper.fromUser(user);
+    }
+
+    @Benchmark
+    public UserDTO fromUserWithRole() {
+        return UserDTOMapper.fromUser(user, role);
+    }
+
+    @Benchmark
+    public User toUser() {
+        return UserDTOMapper.toUser(userDTO);
+    }
+
+    // BeanUtils.copyProperties baselines that the mappers above replaced
+
+    @Benchmark
+    public UserDTO beanUtilsFromUserWithRole() {
+        UserDTO copy = new UserDTO();
+        BeanUtils.copyProperties(user, copy);
+        copy.setRoleName(role.getName());
+        copy.setPermissions(role.getPermission());
+        return copy;
+    }
+
+    @Benchmark
+    public User beanUtilsToUser() {
+        User copy = new User();
+        BeanUtils.copyProperties(userDTO, copy);
+        return copy;
+    }
+
+    @Benchmark
+    public User mapRow() throws SQLException {
+        return userRowMapper.mapRow(resultSet, 0);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> principalAuthorities() {
+        return userPrincipal.getAuthorities();
+    }
+
+    @Benchmark
+    public UserDTO principalUser() {
+        return userPrincipal.getUser();
+    }
+}
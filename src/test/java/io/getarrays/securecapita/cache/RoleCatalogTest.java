@@ -0,0 +1,80 @@
+package io.getarrays.securecapita.cache;
+
+import io.getarrays.securecapita.dto.UserDTO;
+import io.getarrays.securecapita.utils.PermissionUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+class RoleCatalogTest {
+
+    private static final String EMAIL = "jane.doe@example.com";
+
+    private final UserPrincipalCache principalCache = new UserPrincipalCache(100, Duration.ofMinutes(5));
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private RoleCatalog roleCatalog;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(H2).setName(UUID.randomUUID().toString()).addScript("test-schema.sql").build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.update("INSERT INTO Roles (name, permission) VALUES ('ROLE_USER', 'READ:USER,READ:CUSTOMER')");
+        roleCatalog = new RoleCatalog(new NamedParameterJdbcTemplate(database), principalCache);
+        roleCatalog.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void refreshPicksUpChangedPermissionsAndClearsCachedPrincipals() {
+        List<GrantedAuthority> oldAuthorities = PermissionUtils.getAuthorities("READ:USER,READ:CUSTOMER");
+        cachePrincipal();
+
+        jdbcTemplate.update("UPDATE Roles SET permission = 'READ:USER' WHERE name = 'ROLE_USER'");
+        roleCatalog.refresh();
+
+        assertThat(roleCatalog.getRoleByName("ROLE_USER").getPermission()).isEqualTo("READ:USER");
+        assertThat(principalCache.get(EMAIL, email -> null)).isNull();
+        // The authorities of the old permission string were dropped, so asking again builds a new list
+        assertThat(PermissionUtils.getAuthorities("READ:USER,READ:CUSTOMER")).isNotSameAs(oldAuthorities);
+    }
+
+    @Test
+    void refreshWithoutChangesKeepsCachedPrincipals() {
+        cachePrincipal();
+
+        roleCatalog.refresh();
+
+        assertThat(principalCache.get(EMAIL, email -> null)).isNotNull();
+    }
+
+    @Test
+    void unknownRoleTriggersAReload() {
+        jdbcTemplate.update("INSERT INTO Roles (name, permission) VALUES ('ROLE_MANAGER', 'READ:USER,UPDATE:USER')");
+
+        assertThat(roleCatalog.getRoleByName("ROLE_MANAGER").getPermission()).isEqualTo("READ:USER,UPDATE:USER");
+    }
+
+    private void cachePrincipal() {
+        UserDTO user = new UserDTO();
+        user.setId(1L);
+        user.setEmail(EMAIL);
+        principalCache.get(EMAIL, email -> user);
+    }
+}
@@ -0,0 +1,23 @@
+package io.getarrays.securecapita.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadProfileCheckTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner().withUserConfiguration(VirtualThreadProfileCheck.class);
+
+    @Test
+    void virtualProfileFailsWithoutTheJava21Sources() {
+        contextRunner.withPropertyValues("spring.profiles.active=virtual")
+                .run(context -> assertThat(context).hasFailed().getFailure().hasRootCauseMessage(
+                        "The 'virtual' profile is active but this build has no virtual thread support. Build with -Pvirtual-threads on JDK 21 or drop the profile."));
+    }
+
+    @Test
+    void otherProfilesStartNormally() {
+        contextRunner.run(context -> assertThat(context).hasNotFailed());
+    }
+}
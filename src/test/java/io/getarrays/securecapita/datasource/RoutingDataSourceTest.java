@@ -0,0 +1,170 @@
+package io.getarrays.securecapita.datasource;
+
+import io.getarrays.securecapita.cache.RecentWriteCache;
+import io.getarrays.securecapita.cache.RoleCatalog;
+import io.getarrays.securecapita.cache.UserPrincipalCache;
+import io.getarrays.securecapita.repository.implementation.RoleRepositoryImplementation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.UUID;
+
+import static io.getarrays.securecapita.enumeration.DataSourceType.REPLICA;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+class RoutingDataSourceTest {
+
+    private static final String EMAIL = "jane.doe@example.com";
+    private static final String LAG_QUERY = "SELECT %d AS Seconds_Behind_Source";
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RoutingDataSource.setRoute(null);
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    void unmarkedCallsUseThePrimary() {
+        RoutingDataSource dataSource = routing(replica, 0);
+
+        assertThat(readName(dataSource)).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyCallsUseTheReplica() {
+        Reader reader = reader(routing(replica, 0), new RecentWriteCache(true, Duration.ofSeconds(5), 100));
+
+        assertThat(reader.read(EMAIL)).isEqualTo("replica");
+        assertThat(RoutingDataSource.getRoute()).isNull();
+    }
+
+    @Test
+    void readsAfterAWriteStayOnThePrimary() {
+        RecentWriteCache recentWrites = new RecentWriteCache(true, Duration.ofSeconds(5), 100);
+        Reader reader = reader(routing(replica, 0), recentWrites);
+
+        recentWrites.markWritten("Jane.Doe@example.com");
+
+        assertThat(reader.read(EMAIL)).isEqualTo("primary");
+        assertThat(reader.read("john.doe@example.com")).isEqualTo("replica");
+    }
+
+    @Test
+    void roleLookupsUseTheReplicaUntilTheUserRoleIsWritten() {
+        EmbeddedDatabase primaryUsers = usersDatabase();
+        EmbeddedDatabase replicaUsers = usersDatabase();
+        try {
+            // User 1 only has a role on the replica, user 2 gets one on the primary below
+            new JdbcTemplate(replicaUsers).update("INSERT INTO UserRoles (user_id, role_id) SELECT 1, id FROM Roles WHERE name = 'ROLE_MANAGER'");
+            RecentWriteCache recentWrites = new RecentWriteCache(true, Duration.ofSeconds(5), 100);
+            NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(routing(primaryUsers, replicaUsers, 0));
+            UserPrincipalCache principalCache = new UserPrincipalCache(100, Duration.ofMinutes(5));
+            RoleRepositoryImplementation roleRepository = proxy(new RoleRepositoryImplementation(jdbc, principalCache, new RoleCatalog(jdbc, principalCache), recentWrites), recentWrites);
+
+            roleRepository.addRoleToUser(2L, "ROLE_USER");
+
+            assertThat(roleRepository.getRoleByUserId(1L).getName()).isEqualTo("ROLE_MANAGER");
+            assertThat(roleRepository.getRoleByUserId(2L).getName()).isEqualTo("ROLE_USER");
+        } finally {
+            primaryUsers.shutdown();
+            replicaUsers.shutdown();
+        }
+    }
+
+    @Test
+    void laggingReplicaFallsBackToThePrimary() {
+        Reader reader = reader(routing(replica, 10), new RecentWriteCache(true, Duration.ofSeconds(5), 100));
+
+        assertThat(reader.read(EMAIL)).isEqualTo("primary");
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToThePrimary() {
+        DataSource unreachable = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/unreachable");
+        ReplicaHealthMonitor monitor = new ReplicaHealthMonitor(replica, Duration.ofSeconds(2), LAG_QUERY.formatted(0), "Seconds_Behind_Source");
+        monitor.check();
+        RoutingDataSource dataSource = new RoutingDataSource(primary, unreachable, monitor);
+        dataSource.afterPropertiesSet();
+
+        RoutingDataSource.setRoute(REPLICA);
+
+        assertThat(readName(dataSource)).isEqualTo("primary");
+        assertThat(monitor.isAvailable()).isFalse();
+    }
+
+    private RoutingDataSource routing(DataSource replica, int lagSeconds) {
+        return routing(primary, replica, lagSeconds);
+    }
+
+    private static RoutingDataSource routing(DataSource primary, DataSource replica, int lagSeconds) {
+        ReplicaHealthMonitor monitor = new ReplicaHealthMonitor(replica, Duration.ofSeconds(2), LAG_QUERY.formatted(lagSeconds), "Seconds_Behind_Source");
+        monitor.check();
+        RoutingDataSource dataSource = new RoutingDataSource(primary, replica, monitor);
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    private static Reader reader(DataSource dataSource, RecentWriteCache recentWrites) {
+        return proxy(new Reader(dataSource), recentWrites);
+    }
+
+    private static <T> T proxy(T target, RecentWriteCache recentWrites) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ReadOnlyRouteAspect(recentWrites));
+        return factory.getProxy();
+    }
+
+    private static String readName(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT name FROM Node", String.class);
+    }
+
+    private static EmbeddedDatabase database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(H2).setName(UUID.randomUUID().toString()).build();
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.execute("CREATE TABLE Node (name VARCHAR(20))");
+        jdbc.update("INSERT INTO Node (name) VALUES (?)", name);
+        return database;
+    }
+
+    private static EmbeddedDatabase usersDatabase() {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(H2).setName(UUID.randomUUID().toString()).addScript("test-schema.sql").build();
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.update("INSERT INTO Roles (name, permission) VALUES ('ROLE_USER', 'READ:USER'), ('ROLE_MANAGER', 'READ:USER,UPDATE:USER')");
+        jdbc.update("INSERT INTO Users (first_name, last_name, email) VALUES ('Jane', 'Doe', 'jane.doe@example.com'), ('John', 'Doe', 'john.doe@example.com')");
+        return database;
+    }
+
+    static class Reader {
+        private final DataSource dataSource;
+
+        Reader(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @ReadOnlyRoute(stickyKey = 0)
+        public String read(String email) {
+            return readName(dataSource);
+        }
+    }
+}
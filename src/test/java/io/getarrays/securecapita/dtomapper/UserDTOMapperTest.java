@@ -0,0 +1,74 @@
+package io.getarrays.securecapita.dtomapper;
+
+import io.getarrays.securecapita.domain.Role;
+import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.dto.UserDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserDTOMapperTest {
+
+    private final Role role = Role.builder().id(1L).name("ROLE_USER").permission("READ:USER,READ:CUSTOMER").build();
+
+    @Test
+    void fromUserMatchesBeanUtilsCopy() {
+        User user = fullUser();
+        UserDTO expected = new UserDTO();
+        BeanUtils.copyProperties(user, expected);
+
+        assertThat(UserDTOMapper.fromUser(user)).usingRecursiveComparison().isEqualTo(expected);
+    }
+
+    @Test
+    void fromUserWithRoleMatchesBeanUtilsCopy() {
+        User user = fullUser();
+        UserDTO expected = new UserDTO();
+        BeanUtils.copyProperties(user, expected);
+        expected.setRoleName(role.getName());
+        expected.setPermissions(role.getPermission());
+
+        assertThat(UserDTOMapper.fromUser(user, role)).usingRecursiveComparison().isEqualTo(expected);
+    }
+
+    @Test
+    void toUserMatchesBeanUtilsCopy() {
+        UserDTO userDTO = UserDTOMapper.fromUser(fullUser(), role);
+        User expected = new User();
+        BeanUtils.copyProperties(userDTO, expected);
+
+        assertThat(UserDTOMapper.toUser(userDTO)).isEqualTo(expected);
+    }
+
+    @Test
+    void emptyUserMatchesBeanUtilsCopy() {
+        User user = new User();
+        UserDTO expected = new UserDTO();
+        BeanUtils.copyProperties(user, expected);
+
+        assertThat(UserDTOMapper.fromUser(user)).usingRecursiveComparison().isEqualTo(expected);
+        assertThat(UserDTOMapper.toUser(new UserDTO())).isEqualTo(new User());
+    }
+
+    private User fullUser() {
+        return User.builder()
+                .id(7L)
+                .firstName("Jane")
+                .lastName("Doe")
+                .email("jane.doe@example.com")
+                .password("encoded-password")
+                .address("1 Main Street")
+                .phone("5145550100")
+                .title("Accountant")
+                .bio("Manages the invoices of the east region")
+                .imageUrl("https://cdn-icons-png.flaticon.com/512/149/149071.png")
+                .enabled(true)
+                .isNotLocked(true)
+                .isUsingMfa(true)
+                .created_at(LocalDateTime.of(2023, 1, 15, 10, 30))
+                .build();
+    }
+}
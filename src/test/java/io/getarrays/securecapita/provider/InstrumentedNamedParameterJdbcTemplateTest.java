@@ -0,0 +1,85 @@
+package io.getarrays.securecapita.provider;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static io.getarrays.securecapita.query.UserQuery.COUNT_USER_EMAIL_QUERY;
+import static io.getarrays.securecapita.query.UserQuery.INSERT_USER_QUERY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+class InstrumentedNamedParameterJdbcTemplateTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private EmbeddedDatabase database;
+    private InstrumentedNamedParameterJdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(H2).setName(UUID.randomUUID().toString()).addScript("test-schema.sql").build();
+        jdbc = new InstrumentedNamedParameterJdbcTemplate(new JdbcTemplate(database), registry, Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void recordsStatementsUnderTheirConstantName() {
+        jdbc.update(INSERT_USER_QUERY, user("jane.doe@example.com"));
+        Integer count = jdbc.queryForObject(COUNT_USER_EMAIL_QUERY, new MapSqlParameterSource("email", "jane.doe@example.com"), Integer.class);
+
+        assertThat(count).isEqualTo(1);
+        assertThat(registry.get("securecapita.jdbc.statement").tag("statement", "UserQuery.INSERT_USER_QUERY").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(registry.get("securecapita.jdbc.rows").tag("statement", "UserQuery.INSERT_USER_QUERY").summary().totalAmount()).isEqualTo(1);
+        assertThat(registry.get("securecapita.jdbc.rows").tag("statement", "UserQuery.COUNT_USER_EMAIL_QUERY").summary().totalAmount()).isEqualTo(1);
+    }
+
+    @Test
+    void recordsBatchesAsOneExecution() {
+        jdbc.batchUpdate(INSERT_USER_QUERY, new SqlParameterSource[] { user("a@example.com"), user("b@example.com"), user("c@example.com") });
+
+        assertThat(registry.get("securecapita.jdbc.statement").tag("statement", "UserQuery.INSERT_USER_QUERY").timer().count()).isEqualTo(1);
+        assertThat(registry.get("securecapita.jdbc.rows").tag("statement", "UserQuery.INSERT_USER_QUERY").summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void recordsFailuresWithTheExceptionType() {
+        jdbc.update(INSERT_USER_QUERY, user("jane.doe@example.com"));
+
+        assertThatThrownBy(() -> jdbc.update(INSERT_USER_QUERY, user("jane.doe@example.com"))).isInstanceOf(DataIntegrityViolationException.class);
+        // The statement proxy sees the driver's SQLException before Spring translates it
+        assertThat(registry.get("securecapita.jdbc.statement").tag("statement", "UserQuery.INSERT_USER_QUERY").tag("outcome", "error")
+                .tag("exception", "JdbcSQLIntegrityConstraintViolationException").timer().count()).isEqualTo(1);
+        assertThat(registry.get("securecapita.jdbc.statement").tag("statement", "UserQuery.INSERT_USER_QUERY").tag("outcome", "success")
+                .tag("exception", "none").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void labelsUnknownStatementsAsOther() {
+        jdbc.queryForObject("SELECT COUNT(*) FROM Users", new MapSqlParameterSource(), Integer.class);
+
+        assertThat(registry.get("securecapita.jdbc.statement").tag("statement", "other").timer().count()).isEqualTo(1);
+    }
+
+    private static MapSqlParameterSource user(String email) {
+        return new MapSqlParameterSource()
+                .addValue("firstName", "Jane")
+                .addValue("lastName", "Doe")
+                .addValue("email", email)
+                .addValue("password", "secret");
+    }
+}
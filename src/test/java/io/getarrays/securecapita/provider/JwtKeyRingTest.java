@@ -0,0 +1,118 @@
+package io.getarrays.securecapita.provider;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import io.getarrays.securecapita.configuration.JwtSigningProperties;
+import io.getarrays.securecapita.domain.Role;
+import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.domain.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtKeyRingTest {
+
+    private static final UserPrincipal PRINCIPAL = new UserPrincipal(
+            User.builder().id(1L).email("jane.doe@example.com").password("password").enabled(true).isNotLocked(true).build(),
+            Role.builder().id(1L).name("ROLE_USER").permission("READ:USER").build());
+
+    @Test
+    void signsWithTheActiveKeyAndVerifiesRetiredKeysAndSecretTokens() throws Exception {
+        KeyPair previous = generate("RSA", 2048);
+        KeyPair current = generate("EC", 256);
+        TokenProvider previousProvider = tokenProvider(JwtKeyRing.from(properties("2026-04", key("2026-04", previous, true)), null));
+        TokenProvider secretProvider = tokenProvider(JwtKeyRing.hmac("test-secret"));
+        TokenProvider currentProvider = tokenProvider(JwtKeyRing.from(
+                properties("2026-10", key("2026-10", current, true), key("2026-04", previous, false)), "test-secret"));
+
+        String token = currentProvider.createAccessToken(PRINCIPAL);
+        assertThat(JWT.decode(token).getKeyId()).isEqualTo("2026-10");
+        assertThat(JWT.decode(token).getAlgorithm()).isEqualTo("ES256");
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        assertThat(currentProvider.verifyToken(token, request).getSubject()).isEqualTo("jane.doe@example.com");
+        assertThat(currentProvider.verifyToken(previousProvider.createRefreshToken(PRINCIPAL), request).getKeyId()).isEqualTo("2026-04");
+        assertThat(currentProvider.verifyToken(secretProvider.createAccessToken(PRINCIPAL), request).getKeyId()).isNull();
+    }
+
+    @Test
+    void rejectsTokensWithAnUnknownKeyId() throws Exception {
+        TokenProvider otherProvider = tokenProvider(JwtKeyRing.from(properties("other", key("other", generate("RSA", 2048), true)), null));
+        TokenProvider tokenProvider = tokenProvider(JwtKeyRing.from(properties("2026-10", key("2026-10", generate("RSA", 2048), true)), null));
+
+        String token = otherProvider.createAccessToken(PRINCIPAL);
+
+        assertThatThrownBy(() -> tokenProvider.verifyToken(token, new MockHttpServletRequest())).isInstanceOf(JWTVerificationException.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishesEveryPublicKeyAsAJwk() throws Exception {
+        JwtKeyRing keyRing = JwtKeyRing.from(properties("ec", key("ec", generate("EC", 256), true), key("rsa", generate("RSA", 2048), false)), null);
+
+        List<Map<String, Object>> keys = (List<Map<String, Object>>) keyRing.getJwks().get("keys");
+
+        assertThat(keys).hasSize(2);
+        Map<String, Object> ec = keys.get(0);
+        assertThat(ec.get("kty")).isEqualTo("EC");
+        assertThat(ec.get("alg")).isEqualTo("ES256");
+        assertThat(Base64.getUrlDecoder().decode((String) ec.get("x"))).hasSize(32);
+        Map<String, Object> rsa = keys.get(1);
+        assertThat(rsa.get("kid")).isEqualTo("rsa");
+        assertThat(rsa.get("e")).isEqualTo("AQAB");
+        assertThat(Base64.getUrlDecoder().decode((String) rsa.get("n"))).hasSize(256);
+        assertThat(ec).doesNotContainKey("d");
+        assertThat(rsa).doesNotContainKey("d");
+    }
+
+    @Test
+    void activeKeyNeedsAPrivateKey() throws Exception {
+        JwtSigningProperties properties = properties("2026-10", key("2026-10", generate("RSA", 2048), false));
+
+        assertThatThrownBy(() -> JwtKeyRing.from(properties, null)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static TokenProvider tokenProvider(JwtKeyRing keyRing) {
+        TokenProvider tokenProvider = new TokenProvider(null, null, new SimpleMeterRegistry(), keyRing);
+        tokenProvider.init();
+        return tokenProvider;
+    }
+
+    private static JwtSigningProperties properties(String activeKeyId, JwtSigningProperties.Key... keys) {
+        JwtSigningProperties properties = new JwtSigningProperties();
+        properties.setActiveKeyId(activeKeyId);
+        properties.setKeys(List.of(keys));
+        return properties;
+    }
+
+    private static JwtSigningProperties.Key key(String id, KeyPair keyPair, boolean withPrivateKey) {
+        JwtSigningProperties.Key key = new JwtSigningProperties.Key();
+        key.setId(id);
+        key.setPublicKey(pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+        if(withPrivateKey) key.setPrivateKey(pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        return key;
+    }
+
+    private static ByteArrayResource pem(String type, byte[] encoded) {
+        String body = Base64.getMimeEncoder(64, "\n".getBytes(US_ASCII)).encodeToString(encoded);
+        return new ByteArrayResource(("-----BEGIN " + type + "-----\n" + body + "\n-----END " + type + "-----\n").getBytes(US_ASCII));
+    }
+
+    private static KeyPair generate(String algorithm, int size) throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+        generator.initialize(size);
+        return generator.generateKeyPair();
+    }
+}
@@ -0,0 +1,116 @@
+package io.getarrays.securecapita.provider;
+
+import io.getarrays.securecapita.cache.RecentWriteCache;
+import io.getarrays.securecapita.cache.RoleCatalog;
+import io.getarrays.securecapita.cache.UserPrincipalCache;
+import io.getarrays.securecapita.exception.TooManyRequestsException;
+import io.getarrays.securecapita.repository.implementation.JdbcVerificationCodeStore;
+import io.getarrays.securecapita.repository.implementation.OutboxRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.RevokedTokenRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.RoleRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.UserRepositoryImplementation;
+import io.getarrays.securecapita.service.implementation.TokenRevocationServiceImplementation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static io.getarrays.securecapita.utils.RequestUtils.getIpAddress;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+class LoginThrottleTest {
+
+    private static final String EMAIL = "jane.doe@example.com";
+    private static final int IP_RATE = 3;
+    private static final int MAX_FAILURES = 5;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private LoginThrottle loginThrottle;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(H2).setName(UUID.randomUUID().toString()).addScript("test-schema.sql").build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.update("INSERT INTO Users (first_name, last_name, email, password, enabled, non_locked) VALUES ('Jane', 'Doe', ?, 'hash', TRUE, TRUE)", EMAIL);
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(database);
+        UserPrincipalCache principalCache = new UserPrincipalCache(100, Duration.ofMinutes(5));
+        RoleCatalog roleCatalog = new RoleCatalog(jdbc, principalCache);
+        RecentWriteCache recentWrites = new RecentWriteCache(false, Duration.ofSeconds(5), 1000);
+        RoleRepositoryImplementation roleRepository = new RoleRepositoryImplementation(jdbc, principalCache, roleCatalog, recentWrites);
+        UserRepositoryImplementation userRepository = new UserRepositoryImplementation(jdbc, roleRepository, new BCryptPasswordEncoder(4), principalCache, roleCatalog,
+                new OutboxRepositoryImplementation(jdbc), new JdbcVerificationCodeStore(jdbc, Duration.ofDays(1)), (email, type) -> {},
+                recentWrites, new TokenRevocationServiceImplementation(new RevokedTokenRepositoryImplementation(jdbc), 1000, 0.01));
+        loginThrottle = new LoginThrottle(userRepository, principalCache, IP_RATE, 5, Duration.ofMinutes(1), MAX_FAILURES, Duration.ofMinutes(15), Duration.ofMinutes(15), 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void rotatingForwardedForDoesNotResetTheAddressBudget() {
+        for (int attempt = 0; attempt < IP_RATE; attempt++) {
+            String ipAddress = getIpAddress(spoofedRequest(attempt));
+            assertThatCode(() -> loginThrottle.checkAllowed(UUID.randomUUID() + "@example.com", ipAddress)).doesNotThrowAnyException();
+        }
+
+        String ipAddress = getIpAddress(spoofedRequest(IP_RATE));
+        assertThatThrownBy(() -> loginThrottle.checkAllowed(UUID.randomUUID() + "@example.com", ipAddress))
+                .isInstanceOf(TooManyRequestsException.class)
+                .hasMessageContaining("this address");
+    }
+
+    @Test
+    void tooManyFailuresLockTheAccountUntilTheLockExpires() {
+        for (int failure = 1; failure < MAX_FAILURES; failure++) loginThrottle.onFailure(EMAIL);
+        assertThat(nonLocked()).isTrue();
+
+        loginThrottle.onFailure(EMAIL);
+
+        assertThat(nonLocked()).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT TIMESTAMPDIFF(MINUTE, NOW(), locked_until) FROM Users", Long.class)).isBetween(14L, 15L);
+
+        loginThrottle.unlockExpiredAccounts();
+        assertThat(nonLocked()).isFalse();
+
+        jdbcTemplate.update("UPDATE Users SET locked_until = TIMESTAMPADD(SECOND, -1, NOW())");
+        loginThrottle.unlockExpiredAccounts();
+
+        assertThat(nonLocked()).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT locked_until FROM Users", Object.class)).isNull();
+    }
+
+    @Test
+    void lockSetByAnAdministratorIsNotLifted() {
+        jdbcTemplate.update("UPDATE Users SET non_locked = FALSE");
+
+        loginThrottle.unlockExpiredAccounts();
+
+        assertThat(nonLocked()).isFalse();
+    }
+
+    private boolean nonLocked() {
+        return jdbcTemplate.queryForObject("SELECT non_locked FROM Users WHERE email = ?", Boolean.class, EMAIL);
+    }
+
+    // Same client each time, with a new made-up X-Forwarded-For on every request
+    private static MockHttpServletRequest spoofedRequest(int attempt) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.7");
+        request.addHeader("X-Forwarded-For", "198.51.100." + attempt);
+        return request;
+    }
+}
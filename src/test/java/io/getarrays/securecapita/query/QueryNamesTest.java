@@ -0,0 +1,50 @@
+package io.getarrays.securecapita.query;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.reflect.Modifier.isPublic;
+import static java.lang.reflect.Modifier.isStatic;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryNamesTest {
+
+    @Test
+    void everyQueryConstantInThePackageHasAName() throws Exception {
+        List<String> unnamed = new ArrayList<>();
+        List<Class<?>> queryClasses = queryClasses();
+
+        for (Class<?> queryClass : queryClasses) {
+            for (Field field : queryClass.getDeclaredFields()) {
+                if (field.getType() != String.class || !isPublic(field.getModifiers()) || !isStatic(field.getModifiers())) continue;
+                if (QueryNames.UNKNOWN.equals(QueryNames.nameOf((String) field.get(null)))) unnamed.add(queryClass.getSimpleName() + "." + field.getName());
+            }
+        }
+
+        assertThat(queryClasses).isNotEmpty();
+        assertThat(unnamed).as("constants of a *Query class missing from QueryNames.QUERY_CLASSES").isEmpty();
+    }
+
+    @Test
+    void queryIsNamedAfterItsClassAndConstant() {
+        assertThat(QueryNames.nameOf(RevokedTokenQuery.SELECT_ACTIVE_REVOCATIONS_BY_KEYS_QUERY)).isEqualTo("RevokedTokenQuery.SELECT_ACTIVE_REVOCATIONS_BY_KEYS_QUERY");
+        assertThat(QueryNames.nameOf("SELECT 1")).isEqualTo(QueryNames.UNKNOWN);
+    }
+
+    // Every top-level *Query class compiled into this package
+    private static List<Class<?>> queryClasses() throws IOException, ClassNotFoundException {
+        String packageName = QueryNames.class.getPackageName();
+        List<Class<?>> classes = new ArrayList<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:" + packageName.replace('.', '/') + "/*Query.class")) {
+            String fileName = resource.getFilename();
+            classes.add(Class.forName(packageName + "." + fileName.substring(0, fileName.length() - ".class".length())));
+        }
+        return classes;
+    }
+}
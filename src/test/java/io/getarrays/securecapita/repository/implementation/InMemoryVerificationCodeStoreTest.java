@@ -0,0 +1,99 @@
+package io.getarrays.securecapita.repository.implementation;
+
+import io.getarrays.securecapita.enumeration.VerificationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.getarrays.securecapita.enumeration.VerificationResult.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryVerificationCodeStoreTest {
+
+    private InMemoryVerificationCodeStore store;
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    void codeCanBeConsumedOnlyOnce() {
+        store = new InMemoryVerificationCodeStore(Duration.ofMinutes(5), Duration.ofSeconds(1), 64);
+        store.save(1L, "ABCDEFGH");
+
+        assertThat(store.consume(1L, "WRONGONE")).isEqualTo(INVALID);
+        assertThat(store.consume(2L, "ABCDEFGH")).isEqualTo(INVALID);
+        assertThat(store.consume(1L, "ABCDEFGH")).isEqualTo(VALID);
+        assertThat(store.consume(1L, "ABCDEFGH")).isEqualTo(INVALID);
+    }
+
+    @Test
+    void newCodeReplacesThePreviousOne() {
+        store = new InMemoryVerificationCodeStore(Duration.ofMinutes(5), Duration.ofSeconds(1), 64);
+        store.save(1L, "FIRSTONE");
+        store.save(1L, "SECONDON");
+
+        assertThat(store.consume(1L, "FIRSTONE")).isEqualTo(INVALID);
+        assertThat(store.consume(1L, "SECONDON")).isEqualTo(VALID);
+    }
+
+    @Test
+    void expiredCodeIsReportedAsExpired() throws InterruptedException {
+        store = new InMemoryVerificationCodeStore(Duration.ofMillis(20), Duration.ofMinutes(1), 64);
+        store.save(1L, "ABCDEFGH");
+        Thread.sleep(40);
+
+        assertThat(store.consume(1L, "ABCDEFGH")).isEqualTo(EXPIRED);
+    }
+
+    @Test
+    void timingWheelEvictsUnusedCodes() throws InterruptedException {
+        store = new InMemoryVerificationCodeStore(Duration.ofMillis(30), Duration.ofMillis(10), 8);
+        for (long userId = 1; userId <= 100; userId++) {
+            store.save(userId, "ABCDEFGH");
+        }
+        assertThat(store.size()).isEqualTo(100);
+
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (store.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void onlyOneConcurrentAttemptWins() throws Exception {
+        store = new InMemoryVerificationCodeStore(Duration.ofMinutes(5), Duration.ofSeconds(1), 64);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 200; round++) {
+                store.save(1L, "ABCDEFGH");
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<VerificationResult>> results = new ArrayList<>();
+                for (int thread = 0; thread < threads; thread++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return store.consume(1L, "ABCDEFGH");
+                    }));
+                }
+                start.countDown();
+                int valid = 0;
+                for (Future<VerificationResult> result : results) {
+                    if(result.get() == VALID) valid++;
+                }
+                assertThat(valid).isEqualTo(1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
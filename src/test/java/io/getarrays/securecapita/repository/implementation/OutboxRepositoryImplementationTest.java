@@ -0,0 +1,114 @@
+package io.getarrays.securecapita.repository.implementation;
+
+import io.getarrays.securecapita.domain.OutboxMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static io.getarrays.securecapita.enumeration.MessageChannel.EMAIL;
+import static io.getarrays.securecapita.enumeration.OutboxStatus.SENDING;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+class OutboxRepositoryImplementationTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private OutboxRepositoryImplementation outboxRepository;
+
+    @BeforeEach
+    void setUp() {
+        // MySQL mode for INSERT ... ON DUPLICATE KEY and UPDATE ... LIMIT
+        database = new EmbeddedDatabaseBuilder().setType(H2).setName(UUID.randomUUID() + ";MODE=MySQL").addScript("test-schema.sql").build();
+        jdbcTemplate = new JdbcTemplate(database);
+        outboxRepository = new OutboxRepositoryImplementation(new NamedParameterJdbcTemplate(database));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void enqueueingTheSameDedupeKeyTwiceKeepsOneMessage() {
+        outboxRepository.enqueue(message("verify:1"));
+        outboxRepository.enqueue(message("verify:1"));
+        outboxRepository.enqueueAll(List.of(message("verify:1"), message("verify:2")));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Outbox", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void claimTakesAtMostTheLimitAndNeverTheSameMessageTwice() {
+        outboxRepository.enqueueAll(IntStream.range(0, 5).mapToObj(index -> message("verify:" + index)).toList());
+
+        List<OutboxMessage> first = outboxRepository.claim("first", 3);
+        List<OutboxMessage> second = outboxRepository.claim("second", 3);
+
+        assertThat(first).hasSize(3).allSatisfy(message -> {
+            assertThat(message.getStatus()).isEqualTo(SENDING);
+            assertThat(message.getAttempts()).isEqualTo(1);
+        });
+        assertThat(second).hasSize(2);
+        assertThat(second).extracting(OutboxMessage::getId).doesNotContainAnyElementsOf(first.stream().map(OutboxMessage::getId).toList());
+        assertThat(outboxRepository.claim("third", 3)).isEmpty();
+    }
+
+    @Test
+    void rescheduledMessageIsNotClaimedBeforeItsNextAttempt() {
+        outboxRepository.enqueue(message("verify:1"));
+        OutboxMessage claimed = outboxRepository.claim("first", 10).get(0);
+
+        outboxRepository.reschedule(claimed.getId(), 60, "SMTP unavailable");
+
+        assertThat(outboxRepository.claim("second", 10)).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM Outbox", String.class)).isEqualTo("PENDING");
+        assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM Outbox", String.class)).isEqualTo("SMTP unavailable");
+        assertThat(jdbcTemplate.queryForObject("SELECT TIMESTAMPDIFF(SECOND, NOW(), next_attempt_at) FROM Outbox", Long.class)).isBetween(58L, 60L);
+    }
+
+    @Test
+    void sentAndFailedMessagesAreNotClaimedAgain() {
+        outboxRepository.enqueueAll(List.of(message("verify:1"), message("verify:2")));
+        List<OutboxMessage> claimed = outboxRepository.claim("first", 10);
+
+        outboxRepository.markSent(List.of(claimed.get(0).getId()));
+        outboxRepository.markFailed(claimed.get(1).getId(), "x".repeat(300));
+
+        assertThat(jdbcTemplate.queryForList("SELECT status FROM Outbox ORDER BY id", String.class)).containsExactly("SENT", "FAILED");
+        assertThat(jdbcTemplate.queryForObject("SELECT LENGTH(last_error) FROM Outbox WHERE status = 'FAILED'", Integer.class)).isEqualTo(255);
+        assertThat(outboxRepository.claim("second", 10)).isEmpty();
+    }
+
+    @Test
+    void staleClaimsAreReleased() {
+        outboxRepository.enqueueAll(List.of(message("verify:1"), message("verify:2")));
+        List<OutboxMessage> claimed = outboxRepository.claim("crashed", 10);
+        jdbcTemplate.update("UPDATE Outbox SET claimed_at = TIMESTAMPADD(MINUTE, -10, NOW()) WHERE id = ?", claimed.get(0).getId());
+
+        assertThat(outboxRepository.releaseStaleClaims(Duration.ofMinutes(5))).isEqualTo(1);
+
+        List<OutboxMessage> reclaimed = outboxRepository.claim("next", 10);
+        assertThat(reclaimed).extracting(OutboxMessage::getId).containsExactly(claimed.get(0).getId());
+        assertThat(reclaimed.get(0).getAttempts()).isEqualTo(2);
+    }
+
+    private static OutboxMessage message(String dedupeKey) {
+        return OutboxMessage.builder()
+                .channel(EMAIL)
+                .recipient("jane.doe@example.com")
+                .subject("Verify your account")
+                .body("Click the link")
+                .dedupeKey(dedupeKey)
+                .build();
+    }
+}
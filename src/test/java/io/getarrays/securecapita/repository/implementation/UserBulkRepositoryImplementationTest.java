@@ -0,0 +1,136 @@
+package io.getarrays.securecapita.repository.implementation;
+
+import io.getarrays.securecapita.cache.RoleCatalog;
+import io.getarrays.securecapita.cache.UserPrincipalCache;
+import io.getarrays.securecapita.dto.UserDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+class UserBulkRepositoryImplementationTest {
+
+    private final List<Integer> fetchSizes = new CopyOnWriteArrayList<>();
+    private EmbeddedDatabase database;
+    private UserBulkRepositoryImplementation repository;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(H2).setName(UUID.randomUUID().toString()).addScript("test-schema.sql").build();
+        JdbcTemplate setup = new JdbcTemplate(database);
+        setup.update("INSERT INTO Roles (name, permission) VALUES ('ROLE_USER', 'READ:USER,READ:CUSTOMER')");
+        setup.update("INSERT INTO Users (first_name, last_name, email, password, phone, enabled) VALUES ('Jane', 'Doe', 'jane.doe@example.com', 'hash', '+1 555 0100', TRUE)");
+        setup.update("INSERT INTO Users (first_name, last_name, email, password) VALUES ('John', 'Doe', 'john.doe@example.com', 'hash')");
+        setup.update("INSERT INTO Users (first_name, last_name, email, password) VALUES ('Ann', 'Roe', 'ann.roe@example.com', 'hash')");
+        setup.update("INSERT INTO UserRoles (user_id, role_id) SELECT u.id, r.id FROM Users u, Roles r WHERE u.email <> 'john.doe@example.com'");
+
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(database);
+        repository = new UserBulkRepositoryImplementation(jdbc, new DataSourceTransactionManager(database), new RoleCatalog(jdbc, new UserPrincipalCache(100, Duration.ofMinutes(5))),
+                new OutboxRepositoryImplementation(jdbc), fetchSizeRecordingDataSource(), Integer.MIN_VALUE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void streamsEveryUserInIdOrderWithoutThePassword() {
+        List<UserDTO> users = new ArrayList<>();
+
+        repository.streamUsers(users::add);
+
+        assertThat(users).extracting(UserDTO::getEmail).containsExactly("jane.doe@example.com", "john.doe@example.com", "ann.roe@example.com");
+        UserDTO jane = users.get(0);
+        assertThat(jane.getFirstName()).isEqualTo("Jane");
+        assertThat(jane.getPhone()).isEqualTo("+1 555 0100");
+        assertThat(jane.isEnabled()).isTrue();
+        assertThat(jane.isNotLocked()).isTrue();
+        assertThat(jane.getCreated_at()).isNotNull();
+        assertThat(jane.getRoleName()).isEqualTo("ROLE_USER");
+        assertThat(jane.getPermissions()).isEqualTo("READ:USER,READ:CUSTOMER");
+        assertThat(jane.getBio()).isNull();
+    }
+
+    @Test
+    void userWithoutARoleHasNoRoleName() {
+        List<UserDTO> users = new ArrayList<>();
+
+        repository.streamUsers(users::add);
+
+        assertThat(users.get(1).getRoleName()).isNull();
+        assertThat(users.get(1).getPermissions()).isNull();
+    }
+
+    @Test
+    void exportQueryAsksTheDriverToStreamRows() {
+        repository.streamUsers(user -> {});
+
+        assertThat(fetchSizes).containsExactly(Integer.MIN_VALUE);
+    }
+
+    @Test
+    void failingConsumerStopsTheStream() {
+        List<UserDTO> users = new ArrayList<>();
+
+        assertThatThrownBy(() -> repository.streamUsers(user -> {
+            users.add(user);
+            throw new IllegalStateException("client went away");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(users).hasSize(1);
+    }
+
+    // H2 rejects a negative fetch size, so statements record the value instead of passing it on
+    private DelegatingDataSource fetchSizeRecordingDataSource() {
+        return new DelegatingDataSource(database) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return result instanceof Statement statement ? recording(statement, method.getReturnType()) : result;
+                });
+            }
+        };
+    }
+
+    private Object recording(Statement statement, Class<?> type) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("setFetchSize")) {
+                fetchSizes.add((Integer) args[0]);
+                return null;
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException exception) {
+            throw exception.getCause();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package io.getarrays.securecapita.resource;
+
+import io.getarrays.securecapita.cache.RecentWriteCache;
+import io.getarrays.securecapita.cache.RoleCatalog;
+import io.getarrays.securecapita.cache.UserPrincipalCache;
+import io.getarrays.securecapita.domain.HttpResponse;
+import io.getarrays.securecapita.form.LoginForm;
+import io.getarrays.securecapita.provider.JwtKeyRing;
+import io.getarrays.securecapita.provider.LoginThrottle;
+import io.getarrays.securecapita.provider.TokenProvider;
+import io.getarrays.securecapita.repository.implementation.JdbcVerificationCodeStore;
+import io.getarrays.securecapita.repository.implementation.OutboxRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.RevokedTokenRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.RoleRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.UserRepositoryImplementation;
+import io.getarrays.securecapita.service.EventService;
+import io.getarrays.securecapita.service.implementation.TokenRevocationServiceImplementation;
+import io.getarrays.securecapita.service.implementation.UserServiceImplementation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+class LoginQueryCountTest {
+
+    private static final String EMAIL = "jane.doe@example.com";
+    private static final String PASSWORD = "password";
+
+    private final AtomicInteger statements = new AtomicInteger();
+    private EmbeddedDatabase database;
+    private UserResource userResource;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(H2).setName(UUID.randomUUID().toString()).addScript("test-schema.sql").build();
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+        JdbcTemplate setup = new JdbcTemplate(database);
+        setup.update("INSERT INTO Roles (name, permission) VALUES ('ROLE_USER', 'READ:USER,READ:CUSTOMER')");
+        setup.update("INSERT INTO Users (first_name, last_name, email, password, enabled, non_locked) VALUES ('Jane', 'Doe', ?, ?, TRUE, TRUE)", EMAIL, encoder.encode(PASSWORD));
+        setup.update("INSERT INTO UserRoles (user_id, role_id) SELECT u.id, r.id FROM Users u, Roles r WHERE u.email = ? AND r.name = 'ROLE_USER'", EMAIL);
+
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(countingDataSource());
+        // Audit events are written asynchronously and are not part of the login path being counted
+        EventService eventService = (email, type) -> {};
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserPrincipalCache principalCache = new UserPrincipalCache(100, Duration.ofMinutes(5));
+        RoleCatalog roleCatalog = new RoleCatalog(jdbc, principalCache);
+        roleCatalog.refresh();
+        RecentWriteCache recentWrites = new RecentWriteCache(false, Duration.ofSeconds(5), 1000);
+        RoleRepositoryImplementation roleRepository = new RoleRepositoryImplementation(jdbc, principalCache, roleCatalog, recentWrites);
+        TokenRevocationServiceImplementation tokenRevocationService = new TokenRevocationServiceImplementation(new RevokedTokenRepositoryImplementation(jdbc), 1000, 0.01);
+        UserRepositoryImplementation userRepository = new UserRepositoryImplementation(jdbc, roleRepository, encoder, principalCache, roleCatalog, new OutboxRepositoryImplementation(jdbc), new JdbcVerificationCodeStore(jdbc, Duration.ofDays(1)), eventService, recentWrites, tokenRevocationService);
+        UserServiceImplementation userService = new UserServiceImplementation(userRepository, roleRepository, encoder);
+
+        TokenProvider tokenProvider = new TokenProvider(userService, principalCache, meterRegistry, JwtKeyRing.hmac("test-secret"));
+        tokenProvider.init();
+
+        DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
+        authenticationProvider.setUserDetailsService(userRepository);
+        authenticationProvider.setPasswordEncoder(encoder);
+
+        userResource = new UserResource(userService, new ProviderManager(authenticationProvider), tokenProvider,
+                new MockHttpServletRequest(), new MockHttpServletResponse(), eventService,
+                new LoginThrottle(userRepository, principalCache, 20, 5, Duration.ofMinutes(1), 5, Duration.ofMinutes(15), Duration.ofMinutes(15), 1000), meterRegistry, tokenRevocationService);
+        statements.set(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void loginIssuesBothTokensWithASingleQuery() {
+        LoginForm loginForm = new LoginForm();
+        loginForm.setEmail(EMAIL);
+        loginForm.setPassword(PASSWORD);
+
+        ResponseEntity<HttpResponse> response = userResource.login(loginForm);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Map<?, ?> data = response.getBody().getData();
+        assertThat(data.containsKey("access_token")).isTrue();
+        assertThat(data.containsKey("refresh_token")).isTrue();
+        assertThat(statements.get()).isEqualTo(1);
+    }
+
+    // Counts every statement prepared or created on connections handed out by the embedded database
+    private DelegatingDataSource countingDataSource() {
+        return new DelegatingDataSource(database) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                        statements.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException exception) {
+                        throw exception.getCause();
+                    }
+                });
+            }
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package io.getarrays.securecapita.resource;
+
+import io.getarrays.securecapita.dto.UserImportJob;
+import io.getarrays.securecapita.enumeration.ExportFormat;
+import io.getarrays.securecapita.exception.HandleException;
+import io.getarrays.securecapita.service.UserBulkService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+class UserBulkResourceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean blockExports;
+    private ThreadPoolTaskExecutor exportExecutor;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        exportExecutor = new ThreadPoolTaskExecutor();
+        exportExecutor.setCorePoolSize(1);
+        exportExecutor.setMaxPoolSize(1);
+        exportExecutor.setQueueCapacity(0);
+        exportExecutor.setThreadNamePrefix("export-");
+        exportExecutor.initialize();
+        mockMvc = standaloneSetup(new UserBulkResource(new StubUserBulkService(), exportExecutor, Duration.ofSeconds(10)))
+                .setControllerAdvice(new HandleException(7))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        exportExecutor.shutdown();
+    }
+
+    @Test
+    void exportIsWrittenOnTheExportExecutor() throws Exception {
+        MvcResult result = mockMvc.perform(get("/user/bulk/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CONTENT_DISPOSITION, "attachment; filename=\"users.csv\""))
+                .andExpect(content().string("CSV written by export-1\n"));
+    }
+
+    @Test
+    void exportIsRejectedWithRetryAfterWhenEveryExportThreadIsBusy() throws Exception {
+        blockExports = true;
+        mockMvc.perform(get("/user/bulk/export")).andExpect(request().asyncStarted());
+
+        mockMvc.perform(get("/user/bulk/export").accept(APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(RETRY_AFTER, "7"))
+                .andExpect(header().doesNotExist(CONTENT_DISPOSITION))
+                .andExpect(jsonPath("$.reason").value("Too many exports are running. Please try again later"));
+    }
+
+    private class StubUserBulkService implements UserBulkService {
+        @Override
+        public void exportUsers(ExportFormat format, OutputStream outputStream) throws IOException {
+            if (blockExports) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            outputStream.write((format + " written by " + Thread.currentThread().getName() + "\n").getBytes(UTF_8));
+        }
+
+        @Override
+        public UserImportJob startImport(ExportFormat format, InputStream inputStream) {
+            return new UserImportJob("import-1", format);
+        }
+
+        @Override
+        public UserImportJob getImport(String id) {
+            return new UserImportJob(id, ExportFormat.CSV);
+        }
+    }
+}
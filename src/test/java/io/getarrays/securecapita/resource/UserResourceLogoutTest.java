@@ -0,0 +1,136 @@
+package io.getarrays.securecapita.resource;
+
+import io.getarrays.securecapita.cache.RecentWriteCache;
+import io.getarrays.securecapita.cache.RoleCatalog;
+import io.getarrays.securecapita.cache.UserPrincipalCache;
+import io.getarrays.securecapita.domain.HttpResponse;
+import io.getarrays.securecapita.form.LoginForm;
+import io.getarrays.securecapita.form.LogoutForm;
+import io.getarrays.securecapita.provider.JwtKeyRing;
+import io.getarrays.securecapita.provider.LoginThrottle;
+import io.getarrays.securecapita.provider.TokenProvider;
+import io.getarrays.securecapita.repository.implementation.JdbcVerificationCodeStore;
+import io.getarrays.securecapita.repository.implementation.OutboxRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.RevokedTokenRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.RoleRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.UserRepositoryImplementation;
+import io.getarrays.securecapita.service.EventService;
+import io.getarrays.securecapita.service.implementation.TokenRevocationServiceImplementation;
+import io.getarrays.securecapita.service.implementation.UserServiceImplementation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+class UserResourceLogoutTest {
+
+    private static final String EMAIL = "jane.doe@example.com";
+    private static final String PASSWORD = "password";
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+    private final Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(EMAIL, null, List.of());
+    private EmbeddedDatabase database;
+    private TokenProvider tokenProvider;
+    private TokenRevocationServiceImplementation tokenRevocationService;
+    private UserResource userResource;
+
+    @BeforeEach
+    void setUp() {
+        // MySQL mode for the INSERT ... ON DUPLICATE KEY that revokes a token
+        database = new EmbeddedDatabaseBuilder().setType(H2).setName(UUID.randomUUID() + ";MODE=MySQL").addScript("test-schema.sql").build();
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+        JdbcTemplate setup = new JdbcTemplate(database);
+        setup.update("INSERT INTO Roles (name, permission) VALUES ('ROLE_USER', 'READ:USER,READ:CUSTOMER')");
+        setup.update("INSERT INTO Users (first_name, last_name, email, password, enabled, non_locked) VALUES ('Jane', 'Doe', ?, ?, TRUE, TRUE)", EMAIL, encoder.encode(PASSWORD));
+        setup.update("INSERT INTO UserRoles (user_id, role_id) SELECT u.id, r.id FROM Users u, Roles r WHERE u.email = ? AND r.name = 'ROLE_USER'", EMAIL);
+
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(database);
+        EventService eventService = (email, type) -> {};
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserPrincipalCache principalCache = new UserPrincipalCache(100, Duration.ofMinutes(5));
+        RoleCatalog roleCatalog = new RoleCatalog(jdbc, principalCache);
+        roleCatalog.refresh();
+        RecentWriteCache recentWrites = new RecentWriteCache(false, Duration.ofSeconds(5), 1000);
+        RoleRepositoryImplementation roleRepository = new RoleRepositoryImplementation(jdbc, principalCache, roleCatalog, recentWrites);
+        tokenRevocationService = new TokenRevocationServiceImplementation(new RevokedTokenRepositoryImplementation(jdbc), 1000, 0.01);
+        UserRepositoryImplementation userRepository = new UserRepositoryImplementation(jdbc, roleRepository, encoder, principalCache, roleCatalog, new OutboxRepositoryImplementation(jdbc), new JdbcVerificationCodeStore(jdbc, Duration.ofDays(1)), eventService, recentWrites, tokenRevocationService);
+        UserServiceImplementation userService = new UserServiceImplementation(userRepository, roleRepository, encoder);
+
+        tokenProvider = new TokenProvider(userService, principalCache, meterRegistry, JwtKeyRing.hmac("test-secret"));
+        tokenProvider.init();
+
+        DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
+        authenticationProvider.setUserDetailsService(userRepository);
+        authenticationProvider.setPasswordEncoder(encoder);
+
+        userResource = new UserResource(userService, new ProviderManager(authenticationProvider), tokenProvider,
+                request, new MockHttpServletResponse(), eventService,
+                new LoginThrottle(userRepository, principalCache, 20, 5, Duration.ofMinutes(1), 5, Duration.ofMinutes(15), Duration.ofMinutes(15), 1000), meterRegistry, tokenRevocationService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void logoutRevokesBothTokens() {
+        String[] tokens = login();
+
+        ResponseEntity<HttpResponse> response = userResource.logout(authentication, logoutForm(tokens[1]));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(tokenRevocationService.isRevoked(tokenProvider.verifyToken(tokens[0], request))).isTrue();
+        assertThat(tokenRevocationService.isRevoked(tokenProvider.verifyToken(tokens[1], request))).isTrue();
+    }
+
+    @Test
+    void unreadableRefreshTokenStillLogsOut() {
+        String[] tokens = login();
+
+        ResponseEntity<HttpResponse> response = userResource.logout(authentication, logoutForm("not-a-token"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(tokenRevocationService.isRevoked(tokenProvider.verifyToken(tokens[0], request))).isTrue();
+        assertThat(tokenRevocationService.isRevoked(tokenProvider.verifyToken(tokens[1], request))).isFalse();
+    }
+
+    // Logs in and sends the access token on the request, returns the access and refresh tokens
+    private String[] login() {
+        LoginForm loginForm = new LoginForm();
+        loginForm.setEmail(EMAIL);
+        loginForm.setPassword(PASSWORD);
+        var data = userResource.login(loginForm).getBody().getData();
+        String accessToken = (String) data.get("access_token");
+        request.addHeader(AUTHORIZATION, "Bearer " + accessToken);
+        return new String[]{accessToken, (String) data.get("refresh_token")};
+    }
+
+    private static LogoutForm logoutForm(String refreshToken) {
+        LogoutForm logoutForm = new LogoutForm();
+        logoutForm.setRefreshToken(refreshToken);
+        return logoutForm;
+    }
+}
@@ -0,0 +1,125 @@
+package io.getarrays.securecapita.scheduler;
+
+import io.getarrays.securecapita.domain.OutboxMessage;
+import io.getarrays.securecapita.repository.implementation.OutboxRepositoryImplementation;
+import io.getarrays.securecapita.transport.InMemoryMessageTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static io.getarrays.securecapita.enumeration.MessageChannel.EMAIL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+class OutboxDispatcherTest {
+
+    private static final int BATCH_SIZE = 4;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final InMemoryMessageTransport transport = new InMemoryMessageTransport();
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private OutboxRepositoryImplementation outboxRepository;
+    private OutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(H2).setName(UUID.randomUUID() + ";MODE=MySQL").addScript("test-schema.sql").build();
+        jdbcTemplate = new JdbcTemplate(database);
+        outboxRepository = new OutboxRepositoryImplementation(new NamedParameterJdbcTemplate(database));
+        dispatcher = new OutboxDispatcher(outboxRepository, List.of(transport), 2, BATCH_SIZE, MAX_ATTEMPTS,
+                Duration.ofSeconds(10), Duration.ofSeconds(15), Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+        database.shutdown();
+    }
+
+    @Test
+    void dispatchSendsEveryPendingMessageAcrossBatches() {
+        outboxRepository.enqueueAll(IntStream.range(0, 10).mapToObj(index -> message("verify:" + index)).toList());
+
+        dispatcher.dispatch();
+
+        assertThat(transport.getSent()).extracting(OutboxMessage::getDedupeKey).hasSize(10).doesNotHaveDuplicates();
+        assertThat(jdbcTemplate.queryForList("SELECT DISTINCT status FROM Outbox", String.class)).containsExactly("SENT");
+    }
+
+    @Test
+    void duplicateEnqueueIsDeliveredOnce() {
+        outboxRepository.enqueue(message("verify:1"));
+        outboxRepository.enqueue(message("verify:1"));
+
+        dispatcher.dispatch();
+        dispatcher.dispatch();
+
+        assertThat(transport.getSent()).hasSize(1);
+    }
+
+    @Test
+    void failedDeliveryIsRetriedWithBackoff() {
+        outboxRepository.enqueue(message("verify:1"));
+        transport.failWith("SMTP unavailable");
+
+        dispatcher.dispatch();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM Outbox", String.class)).isEqualTo("PENDING");
+        assertThat(jdbcTemplate.queryForObject("SELECT attempts FROM Outbox", Integer.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM Outbox", String.class)).isEqualTo("SMTP unavailable");
+        // First retry waits half to all of the 10s initial backoff
+        assertThat(jdbcTemplate.queryForObject("SELECT TIMESTAMPDIFF(SECOND, NOW(), next_attempt_at) FROM Outbox", Long.class)).isBetween(4L, 10L);
+
+        transport.clear();
+        dispatcher.dispatch();
+        assertThat(transport.getSent()).isEmpty();
+
+        makeDue();
+        dispatcher.dispatch();
+        assertThat(transport.getSent()).hasSize(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM Outbox", String.class)).isEqualTo("SENT");
+        assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM Outbox", String.class)).isNull();
+    }
+
+    @Test
+    void messageIsMarkedFailedAfterMaxAttempts() {
+        outboxRepository.enqueue(message("verify:1"));
+        transport.failWith("Mailbox does not exist");
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            makeDue();
+            dispatcher.dispatch();
+        }
+
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM Outbox", String.class)).isEqualTo("FAILED");
+        assertThat(jdbcTemplate.queryForObject("SELECT attempts FROM Outbox", Integer.class)).isEqualTo(MAX_ATTEMPTS);
+
+        makeDue();
+        dispatcher.dispatch();
+        assertThat(jdbcTemplate.queryForObject("SELECT attempts FROM Outbox", Integer.class)).isEqualTo(MAX_ATTEMPTS);
+    }
+
+    private void makeDue() {
+        jdbcTemplate.update("UPDATE Outbox SET next_attempt_at = TIMESTAMPADD(SECOND, -1, NOW())");
+    }
+
+    private static OutboxMessage message(String dedupeKey) {
+        return OutboxMessage.builder()
+                .channel(EMAIL)
+                .recipient("jane.doe@example.com")
+                .subject("Verify your account")
+                .body("Click the link")
+                .dedupeKey(dedupeKey)
+                .build();
+    }
+}
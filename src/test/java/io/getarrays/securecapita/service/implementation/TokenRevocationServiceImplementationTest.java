@@ -0,0 +1,101 @@
+package io.getarrays.securecapita.service.implementation;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.getarrays.securecapita.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import static java.lang.System.currentTimeMillis;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationServiceImplementationTest {
+
+    private final InMemoryRevokedTokenRepository repository = new InMemoryRevokedTokenRepository();
+    private TokenRevocationServiceImplementation revocationService;
+
+    @BeforeEach
+    void setUp() {
+        revocationService = new TokenRevocationServiceImplementation(repository, 1000, 0.01);
+        revocationService.rebuild();
+    }
+
+    @Test
+    void unrevokedTokensSkipTheLookup() {
+        assertThat(revocationService.isRevoked(token("jane.doe@example.com", currentTimeMillis()))).isFalse();
+        assertThat(repository.lookups.get()).isZero();
+    }
+
+    @Test
+    void revokedTokenIsRejectedAndOthersAreNot() {
+        DecodedJWT revoked = token("jane.doe@example.com", currentTimeMillis());
+        revocationService.revokeToken(revoked);
+
+        assertThat(revocationService.isRevoked(revoked)).isTrue();
+        assertThat(revocationService.isRevoked(token("jane.doe@example.com", currentTimeMillis()))).isFalse();
+    }
+
+    @Test
+    void subjectRevocationOnlyRejectsTokensIssuedBeforeIt() {
+        DecodedJWT issuedBefore = token("Jane.Doe@example.com", currentTimeMillis() - 60_000);
+        revocationService.revokeSubject("jane.doe@example.com");
+
+        assertThat(revocationService.isRevoked(issuedBefore)).isTrue();
+        assertThat(revocationService.isRevoked(token("jane.doe@example.com", currentTimeMillis() + 60_000))).isFalse();
+    }
+
+    @Test
+    void rebuildLoadsRevocationsFromTheTable() {
+        DecodedJWT revoked = token("jane.doe@example.com", currentTimeMillis());
+        revocationService.revokeToken(revoked);
+
+        TokenRevocationServiceImplementation restarted = new TokenRevocationServiceImplementation(repository, 1000, 0.01);
+        restarted.rebuild();
+
+        assertThat(restarted.isRevoked(revoked)).isTrue();
+    }
+
+    private static DecodedJWT token(String subject, long issuedAt) {
+        return JWT.decode(JWT.create().withJWTId(UUID.randomUUID().toString()).withSubject(subject)
+                .withIssuedAt(new Date(issuedAt)).withExpiresAt(new Date(currentTimeMillis() + 600_000))
+                .sign(HMAC512("test-secret")));
+    }
+
+    private static class InMemoryRevokedTokenRepository implements RevokedTokenRepository {
+        private final Map<String, long[]> rows = new HashMap<>();
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public void revoke(String tokenKey, Long issuedBefore, long expiresAt, long now) {
+            rows.put(tokenKey, new long[]{issuedBefore == null ? -1 : issuedBefore, expiresAt, now});
+        }
+
+        @Override
+        public Map<String, Long> findActive(Collection<String> tokenKeys, long now) {
+            lookups.incrementAndGet();
+            Map<String, Long> active = new HashMap<>();
+            tokenKeys.stream().filter(rows::containsKey).filter(tokenKey -> rows.get(tokenKey)[1] > now)
+                    .forEach(tokenKey -> active.put(tokenKey, rows.get(tokenKey)[0] == -1 ? null : rows.get(tokenKey)[0]));
+            return active;
+        }
+
+        @Override
+        public void forEachActiveKey(long now, Consumer<String> consumer) {
+            rows.forEach((tokenKey, row) -> { if(row[1] > now) consumer.accept(tokenKey); });
+        }
+
+        @Override
+        public void forEachKeySince(long since, long now, Consumer<String> consumer) {
+            rows.forEach((tokenKey, row) -> { if(row[2] >= since && row[1] > now) consumer.accept(tokenKey); });
+        }
+    }
+}
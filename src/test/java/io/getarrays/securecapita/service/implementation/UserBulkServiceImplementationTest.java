@@ -0,0 +1,247 @@
+package io.getarrays.securecapita.service.implementation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.dto.UserDTO;
+import io.getarrays.securecapita.dto.UserImportJob;
+import io.getarrays.securecapita.exception.ApiException;
+import io.getarrays.securecapita.exception.ServiceBusyException;
+import io.getarrays.securecapita.repository.UserBulkRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static io.getarrays.securecapita.enumeration.ExportFormat.CSV;
+import static io.getarrays.securecapita.enumeration.ExportFormat.NDJSON;
+import static io.getarrays.securecapita.enumeration.ImportStatus.COMPLETED;
+import static io.getarrays.securecapita.enumeration.ImportStatus.FAILED;
+import static io.getarrays.securecapita.enumeration.ImportStatus.QUEUED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserBulkServiceImplementationTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final StubUserBulkRepository repository = new StubUserBulkRepository();
+    // Imports are queued here and run by the test, so it can look at a job before and after it runs
+    private final List<Runnable> importTasks = new ArrayList<>();
+    private final UserBulkServiceImplementation userBulkService = service(new TaskExecutorAdapter(importTasks::add));
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        userBulkService.shutdown();
+    }
+
+    @Test
+    void ndjsonWritesOneUserPerLineWithoutThePassword() throws IOException {
+        repository.users = List.of(user(1, "Jane", "jane.doe@example.com"), user(2, "John", "john.doe@example.com"));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        userBulkService.exportUsers(NDJSON, outputStream);
+
+        String[] lines = outputStream.toString(UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("email").asText()).isEqualTo("jane.doe@example.com");
+        assertThat(first.get("roleName").asText()).isEqualTo("ROLE_USER");
+        assertThat(first.has("password")).isFalse();
+    }
+
+    @Test
+    void csvQuotesFieldsThatNeedIt() throws IOException {
+        UserDTO user = user(7, "Jane", "jane.doe@example.com");
+        user.setAddress("1 Main St, \"Apt 2\"");
+        repository.users = List.of(user);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        userBulkService.exportUsers(CSV, outputStream);
+
+        String[] lines = outputStream.toString(UTF_8).split("\n");
+        assertThat(lines[0]).startsWith("id,first_name,last_name,email,address");
+        assertThat(lines[1]).isEqualTo("7,Jane,Doe,jane.doe@example.com,\"1 Main St, \"\"Apt 2\"\"\",,,,true,true,false," + CREATED_AT + ",ROLE_USER");
+    }
+
+    @Test
+    void csvNeutralisesFormulaCells() throws IOException {
+        UserDTO user = user(1, "=HYPERLINK(\"http://example.com\")", "jane.doe@example.com");
+        user.setLastName("@SUM(A1)");
+        user.setPhone("+1 555 0100");
+        user.setTitle("-2+3");
+        user.setAddress("\tTab");
+        repository.users = List.of(user);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        userBulkService.exportUsers(CSV, outputStream);
+
+        assertThat(outputStream.toString(UTF_8).split("\n")[1])
+                .startsWith("1,\"'=HYPERLINK(\"\"http://example.com\"\")\",'@SUM(A1),jane.doe@example.com,'\tTab,'+1 555 0100,'-2+3,");
+    }
+
+    @Test
+    void rowsReachTheClientBeforeTheQueryFinishes() throws IOException {
+        repository.users = IntStream.rangeClosed(1, 10_000).mapToObj(id -> user(id, "Jane", "user" + id + "@example.com")).toList();
+        AtomicInteger producedAtFirstWrite = new AtomicInteger(-1);
+        OutputStream outputStream = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                producedAtFirstWrite.compareAndSet(-1, repository.produced.get());
+            }
+        };
+
+        userBulkService.exportUsers(NDJSON, outputStream);
+
+        assertThat(producedAtFirstWrite.get()).isPositive().isLessThan(repository.users.size());
+        assertThat(repository.produced.get()).isEqualTo(repository.users.size());
+    }
+
+    @Test
+    void clientThatGoesAwayStopsTheQuery() {
+        repository.users = IntStream.rangeClosed(1, 10_000).mapToObj(id -> user(id, "Jane", "user" + id + "@example.com")).toList();
+        OutputStream outputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThatThrownBy(() -> userBulkService.exportUsers(CSV, outputStream)).isInstanceOf(IOException.class).hasMessage("Broken pipe");
+        assertThat(repository.produced.get()).isLessThan(repository.users.size());
+    }
+
+    @Test
+    void importRunsInTheBackgroundAndReportsWhenFinished() throws IOException {
+        UserImportJob job = userBulkService.startImport(CSV, csv("""
+                first_name,last_name,email,password
+                Jane,Doe,Jane.Doe@example.com,secret1
+                John,Doe,not-an-email,secret2
+                """));
+
+        assertThat(job.getStatus()).isEqualTo(QUEUED);
+        assertThat(repository.created).isEmpty();
+
+        importTasks.remove(0).run();
+
+        UserImportJob finished = userBulkService.getImport(job.getId());
+        assertThat(finished.getStatus()).isEqualTo(COMPLETED);
+        assertThat(finished.getReport().getCreated()).isEqualTo(1);
+        assertThat(finished.getReport().getFailed()).isEqualTo(1);
+        assertThat(finished.getFinishedAt()).isNotNull();
+        assertThat(repository.created).extracting(User::getEmail).containsExactly("jane.doe@example.com");
+        assertThat(repository.created.get(0).getPassword()).startsWith("$2a$04$");
+        assertThat(repository.verificationUrlPrefix).startsWith("http://localhost/user/verify/");
+    }
+
+    @Test
+    void unreadableFileFailsTheImport() throws IOException {
+        UserImportJob job = userBulkService.startImport(CSV, csv("first_name,last_name,email\nJane,Doe,jane.doe@example.com\n"));
+
+        importTasks.remove(0).run();
+
+        assertThat(job.getStatus()).isEqualTo(FAILED);
+        assertThat(job.getMessage()).isEqualTo("The CSV header must contain first_name, last_name, email and password");
+        assertThat(repository.created).isEmpty();
+    }
+
+    @Test
+    void importIsRejectedWhenEverySlotIsTaken() {
+        UserBulkServiceImplementation busyService = service(new TaskExecutorAdapter(task -> {
+            throw new RejectedExecutionException();
+        }));
+        try {
+            assertThatThrownBy(() -> busyService.startImport(CSV, csv("first_name,last_name,email,password\n")))
+                    .isInstanceOfSatisfying(ServiceBusyException.class, exception -> assertThat(exception.getRetryAfterSeconds()).isEqualTo(30));
+        } finally {
+            busyService.shutdown();
+        }
+    }
+
+    @Test
+    void unknownImportIsRejected() {
+        assertThatThrownBy(() -> userBulkService.getImport("missing")).isInstanceOf(ApiException.class);
+    }
+
+    private UserBulkServiceImplementation service(AsyncTaskExecutor importExecutor) {
+        return new UserBulkServiceImplementation(repository, objectMapper, new BCryptPasswordEncoder(4),
+                Validation.buildDefaultValidatorFactory().getValidator(), importExecutor, 30, Duration.ofHours(1), 1, 500);
+    }
+
+    private static InputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(UTF_8));
+    }
+
+    private static UserDTO user(long id, String firstName, String email) {
+        return new UserDTO(id, firstName, "Doe", email, null, null, null, null, null, true, true, false, CREATED_AT, "ROLE_USER", "READ:USER");
+    }
+
+    private static class StubUserBulkRepository implements UserBulkRepository {
+        private final AtomicInteger produced = new AtomicInteger();
+        private final List<User> created = new ArrayList<>();
+        private List<UserDTO> users = List.of();
+        private String verificationUrlPrefix;
+
+        @Override
+        public void streamUsers(Consumer<UserDTO> consumer) {
+            for (UserDTO user : users) {
+                produced.incrementAndGet();
+                consumer.accept(user);
+            }
+        }
+
+        @Override
+        public Set<String> findExistingEmails(Collection<String> emails) {
+            return Set.of();
+        }
+
+        @Override
+        public Map<String, String> createUsers(List<User> users, String verificationUrlPrefix) {
+            created.addAll(users);
+            this.verificationUrlPrefix = verificationUrlPrefix;
+            return Map.of();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package io.getarrays.securecapita.service.implementation;
+
+import io.getarrays.securecapita.cache.RecentWriteCache;
+import io.getarrays.securecapita.cache.RoleCatalog;
+import io.getarrays.securecapita.cache.UserPrincipalCache;
+import io.getarrays.securecapita.domain.User;
+import io.getarrays.securecapita.dto.UserPage;
+import io.getarrays.securecapita.exception.ApiException;
+import io.getarrays.securecapita.repository.implementation.JdbcVerificationCodeStore;
+import io.getarrays.securecapita.repository.implementation.OutboxRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.RevokedTokenRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.RoleRepositoryImplementation;
+import io.getarrays.securecapita.repository.implementation.UserRepositoryImplementation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
+
+class UserServiceImplementationTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private UserServiceImplementation userService;
+
+    @BeforeEach
+    void setUp() {
+        // MySQL mode for the INSERT ... ON DUPLICATE KEY that queues the verification email
+        database = new EmbeddedDatabaseBuilder().setType(H2).setName(UUID.randomUUID() + ";MODE=MySQL").addScript("test-schema.sql").build();
+        jdbcTemplate = new JdbcTemplate(database);
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(database);
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+        UserPrincipalCache principalCache = new UserPrincipalCache(100, Duration.ofMinutes(5));
+        RoleCatalog roleCatalog = new RoleCatalog(jdbc, principalCache);
+        RecentWriteCache recentWrites = new RecentWriteCache(false, Duration.ofSeconds(5), 1000);
+        RoleRepositoryImplementation roleRepository = new RoleRepositoryImplementation(jdbc, principalCache, roleCatalog, recentWrites);
+        UserRepositoryImplementation userRepository = new UserRepositoryImplementation(jdbc, roleRepository, encoder, principalCache, roleCatalog,
+                new OutboxRepositoryImplementation(jdbc), new JdbcVerificationCodeStore(jdbc, Duration.ofDays(1)), (email, type) -> {},
+                recentWrites, new TokenRevocationServiceImplementation(new RevokedTokenRepositoryImplementation(jdbc), 1000, 0.01));
+        userService = new UserServiceImplementation(userRepository, roleRepository, encoder);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        database.shutdown();
+    }
+
+    @Test
+    void pagesThroughEveryUserWithoutGapsOrRepeats() {
+        insertUsers(101);
+        List<Long> ids = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+
+        String cursor = null;
+        do {
+            UserPage page = userService.listUsers(cursor, 40);
+            page.getUsers().forEach(user -> ids.add(user.getId()));
+            pageSizes.add(page.getUsers().size());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(pageSizes).containsExactly(40, 40, 21);
+        assertThat(ids).hasSize(101).doesNotHaveDuplicates().isSorted();
+    }
+
+    @Test
+    void fullLastPageHasNoNextCursor() {
+        insertUsers(80);
+
+        UserPage first = userService.listUsers(null, 40);
+        UserPage second = userService.listUsers(first.getNextCursor(), 40);
+
+        assertThat(first.getNextCursor()).isNotNull();
+        assertThat(second.getUsers()).hasSize(40);
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void pageSizeIsCappedAtOneHundred() {
+        insertUsers(150);
+
+        UserPage page = userService.listUsers(null, 1000);
+
+        assertThat(page.getUsers()).hasSize(100);
+        assertThat(page.getNextCursor()).isNotNull();
+        assertThat(userService.listUsers(null, 0).getUsers()).hasSize(1);
+    }
+
+    @Test
+    void createUserStoresTheHashedPassword() {
+        jdbcTemplate.update("INSERT INTO Roles (name, permission) VALUES ('ROLE_USER', 'READ:USER')");
+        User user = new User();
+        user.setFirstName("Jane");
+        user.setLastName("Doe");
+        user.setEmail("jane.doe@example.com");
+        user.setPassword("secret1");
+
+        userService.createUser(user);
+
+        String stored = jdbcTemplate.queryForObject("SELECT password FROM Users WHERE email = 'jane.doe@example.com'", String.class);
+        assertThat(new BCryptPasswordEncoder().matches("secret1", stored)).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Outbox", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void tamperedCursorIsRejected() {
+        assertThatThrownBy(() -> userService.listUsers("dTpub3QtYW4taWQ", 10)).isInstanceOf(ApiException.class);
+    }
+
+    private void insertUsers(int count) {
+        jdbcTemplate.batchUpdate("INSERT INTO Users (first_name, last_name, email, password) VALUES ('Jane', 'Doe', ?, 'hash')",
+                IntStream.rangeClosed(1, count).mapToObj(index -> new Object[]{"user" + index + "@example.com"}).toList());
+    }
+}
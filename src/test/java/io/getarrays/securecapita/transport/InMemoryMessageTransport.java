@@ -0,0 +1,38 @@
+package io.getarrays.securecapita.transport;
+
+import io.getarrays.securecapita.domain.OutboxMessage;
+import io.getarrays.securecapita.enumeration.MessageChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Stand-in for every channel: keeps the delivered messages so they can be asserted on, or fails every send
+public class InMemoryMessageTransport implements MessageTransport {
+    private final ConcurrentLinkedQueue<OutboxMessage> sent = new ConcurrentLinkedQueue<>();
+    private volatile String failure;
+
+    @Override
+    public boolean supports(MessageChannel channel) {
+        return true;
+    }
+
+    @Override
+    public void send(OutboxMessage message) {
+        if(failure != null) throw new IllegalStateException(failure);
+        sent.add(message);
+    }
+
+    public List<OutboxMessage> getSent() {
+        return new ArrayList<>(sent);
+    }
+
+    public void failWith(String failure) {
+        this.failure = failure;
+    }
+
+    public void clear() {
+        sent.clear();
+        failure = null;
+    }
+}
@@ -0,0 +1,36 @@
+package io.getarrays.securecapita.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void neverMissesAddedValues() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(index -> filter.add("jti:" + index));
+
+        assertThat(IntStream.range(0, 10_000).allMatch(index -> filter.mightContain("jti:" + index))).isTrue();
+    }
+
+    @Test
+    void keepsFalsePositivesNearTheConfiguredRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(index -> filter.add("jti:" + index));
+
+        long falsePositives = IntStream.range(0, 100_000).filter(index -> filter.mightContain("sub:" + index)).count();
+
+        assertThat(falsePositives).isLessThan(3_000);
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        IntStream.range(0, 100_000).parallel().forEach(index -> filter.add("jti:" + index));
+
+        assertThat(IntStream.range(0, 100_000).allMatch(index -> filter.mightContain("jti:" + index))).isTrue();
+    }
+}
@@ -0,0 +1,29 @@
+package io.getarrays.securecapita.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvReaderTest {
+
+    @Test
+    void readsPlainAndQuotedFields() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("first_name,email\r\n\"Doe, Jane\",jane@example.com\n\"Say \"\"hi\"\"\",\n"));
+
+        assertThat(reader.readRecord()).containsExactly("first_name", "email");
+        assertThat(reader.readRecord()).containsExactly("Doe, Jane", "jane@example.com");
+        assertThat(reader.readRecord()).containsExactly("Say \"hi\"", "");
+        assertThat(reader.readRecord()).isNull();
+    }
+
+    @Test
+    void keepsLineBreaksInsideQuotes() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\"12 Main St\nApt 4\",x"));
+
+        assertThat(reader.readRecord()).containsExactly("12 Main St\nApt 4", "x");
+        assertThat(reader.readRecord()).isNull();
+    }
+}
@@ -0,0 +1,40 @@
+package io.getarrays.securecapita.utils;
+
+import io.getarrays.securecapita.exception.ApiException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static io.getarrays.securecapita.utils.CursorUtils.decodeUserCursor;
+import static io.getarrays.securecapita.utils.CursorUtils.encodeUserCursor;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorUtilsTest {
+
+    @Test
+    void decodesWhatItEncodes() {
+        assertThat(decodeUserCursor(encodeUserCursor(42L))).isEqualTo(42L);
+        assertThat(decodeUserCursor(encodeUserCursor(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+        assertThat(encodeUserCursor(42L)).doesNotContain("42").matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void missingCursorStartsAtTheFirstPage() {
+        assertThat(decodeUserCursor(null)).isZero();
+        assertThat(decodeUserCursor(" ")).isZero();
+    }
+
+    @Test
+    void rejectsGarbageAndTamperedCursors() {
+        assertThatThrownBy(() -> decodeUserCursor("not a cursor!")).isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> decodeUserCursor(encoded("r:42"))).isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> decodeUserCursor(encoded("u:42 OR 1=1"))).isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> decodeUserCursor(encoded("u:"))).isInstanceOf(ApiException.class);
+    }
+
+    private static String encoded(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(UTF_8));
+    }
+}
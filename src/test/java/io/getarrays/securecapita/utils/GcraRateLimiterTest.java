@@ -0,0 +1,32 @@
+package io.getarrays.securecapita.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GcraRateLimiterTest {
+
+    @Test
+    void admitsTheBurstThenRejectsWithTheWaitTime() {
+        GcraRateLimiter limiter = new GcraRateLimiter(5, Duration.ofMinutes(1), 5);
+
+        for (int attempt = 0; attempt < 5; attempt++) {
+            assertThat(limiter.tryAcquire()).isZero();
+        }
+        long waitNanos = limiter.tryAcquire();
+
+        assertThat(waitNanos).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(12).toNanos());
+    }
+
+    @Test
+    void slidingWindowCountsEveryIncrement() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofMinutes(15));
+
+        for (int failure = 1; failure <= 5; failure++) {
+            assertThat(counter.incrementAndGet()).isEqualTo(failure);
+        }
+        assertThat(counter.get()).isEqualTo(5);
+    }
+}
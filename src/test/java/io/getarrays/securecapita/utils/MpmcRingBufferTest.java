@@ -0,0 +1,78 @@
+package io.getarrays.securecapita.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MpmcRingBufferTest {
+
+    @Test
+    void rejectsWhenFullAndKeepsFifoOrder() {
+        MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(4);
+
+        for (int item = 0; item < 4; item++) {
+            assertThat(buffer.offer(item)).isTrue();
+        }
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+
+        for (int item = 0; item < 4; item++) {
+            assertThat(buffer.poll()).isEqualTo(item);
+        }
+        assertThat(buffer.poll()).isNull();
+    }
+
+    @Test
+    void everyItemIsConsumedExactlyOnceUnderContention() throws Exception {
+        MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(64);
+        // One thread per side per two cores, so a single-CPU runner still gets one producer and one consumer
+        int producers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int consumers = producers;
+        int itemsPerProducer = 10_000;
+        ConcurrentHashMap<Integer, Boolean> seen = new ConcurrentHashMap<>();
+        AtomicInteger consumed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int producer = 0; producer < producers; producer++) {
+                int offset = producer * itemsPerProducer;
+                tasks.add(executor.submit(() -> {
+                    for (int item = offset; item < offset + itemsPerProducer; item++) {
+                        while (!buffer.offer(item)) {
+                            Thread.yield();
+                        }
+                    }
+                }));
+            }
+            for (int consumer = 0; consumer < consumers; consumer++) {
+                tasks.add(executor.submit(() -> {
+                    while (consumed.get() < producers * itemsPerProducer) {
+                        Integer item = buffer.poll();
+                        if(item == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        assertThat(seen.putIfAbsent(item, Boolean.TRUE)).isNull();
+                        consumed.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(seen).hasSize(producers * itemsPerProducer);
+        assertThat(buffer.poll()).isNull();
+    }
+}
@@ -0,0 +1,23 @@
+package io.getarrays.securecapita.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerificationKeyUtilsTest {
+
+    @Test
+    void hashesKeysWithSha256() {
+        // Must stay equal to UNHEX(SHA2(key, 256)), which the migration of existing rows uses
+        assertThat(HexFormat.of().formatHex(VerificationKeyUtils.hashKey("abc")))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+    @Test
+    void newKeysHashToFixedWidthValues() {
+        assertThat(VerificationKeyUtils.hashKey(VerificationKeyUtils.newKey())).hasSize(32);
+        assertThat(VerificationKeyUtils.newKey()).isNotEqualTo(VerificationKeyUtils.newKey());
+    }
+}
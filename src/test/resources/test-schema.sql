@@ -0,0 +1,81 @@
+-- H2 version of the tables from schema.sql that the JDBC tests touch
+
+CREATE TABLE Users
+(
+    id          BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    first_name  VARCHAR(50) NOT NULL,
+    last_name   VARCHAR(50) NOT NULL,
+    email       VARCHAR(100) NOT NULL,
+    password    VARCHAR(255) DEFAULT NULL,
+    address     VARCHAR(255) DEFAULT NULL,
+    phone       VARCHAR(30) DEFAULT NULL,
+    title       VARCHAR(50) DEFAULT NULL,
+    bio         VARCHAR(255) DEFAULT NULL,
+    enabled     BOOLEAN DEFAULT FALSE,
+    non_locked  BOOLEAN DEFAULT TRUE,
+    using_mfa   BOOLEAN DEFAULT FALSE,
+    created_at  TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    image_url   VARCHAR(255) DEFAULT 'https://cdn-icons-png.flaticon.com/512/149/149071.png',
+    locked_until TIMESTAMP DEFAULT NULL,
+    CONSTRAINT UQ_Users_Email UNIQUE (email)
+);
+
+CREATE INDEX IX_Users_Locked_Until ON Users (locked_until);
+
+CREATE TABLE Roles
+(
+    id         BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    name       VARCHAR(50) NOT NULL,
+    permission VARCHAR(255) NOT NULL,
+    CONSTRAINT UQ_Roles_Name UNIQUE (name)
+);
+
+CREATE TABLE UserRoles
+(
+    id      BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    role_id BIGINT NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES Users (id) ON DELETE CASCADE,
+    FOREIGN KEY (role_id) REFERENCES Roles (id) ON DELETE RESTRICT,
+    CONSTRAINT UQ_UserRoles_User_Id UNIQUE (user_id)
+);
+
+CREATE TABLE AccountVerifications
+(
+    id         BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id    BIGINT NOT NULL,
+    token_hash BINARY(32) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES Users (id) ON DELETE CASCADE,
+    CONSTRAINT UQ_AccountVerifications_User_Id UNIQUE (user_id),
+    CONSTRAINT UQ_AccountVerifications_Token_Hash UNIQUE (token_hash)
+);
+
+CREATE TABLE Outbox
+(
+    id              BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    channel         VARCHAR(10) NOT NULL CHECK ( channel IN ('EMAIL', 'SMS') ),
+    recipient       VARCHAR(100) NOT NULL,
+    subject         VARCHAR(255) DEFAULT NULL,
+    body            TEXT NOT NULL,
+    dedupe_key      VARCHAR(100) NOT NULL,
+    status          VARCHAR(10) NOT NULL DEFAULT 'PENDING' CHECK ( status IN ('PENDING', 'SENDING', 'SENT', 'FAILED') ),
+    attempts        INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimed_by      VARCHAR(64) DEFAULT NULL,
+    claimed_at      TIMESTAMP DEFAULT NULL,
+    last_error      VARCHAR(255) DEFAULT NULL,
+    created_at      TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    sent_at         TIMESTAMP DEFAULT NULL,
+    CONSTRAINT UQ_Outbox_Dedupe_Key UNIQUE (dedupe_key)
+);
+
+CREATE TABLE RevokedTokens
+(
+    id            BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    token_key     VARCHAR(120) NOT NULL,
+    issued_before BIGINT DEFAULT NULL,
+    expires_at    BIGINT NOT NULL,
+    created_at    BIGINT NOT NULL,
+    CONSTRAINT UQ_RevokedTokens_Token_Key UNIQUE (token_key)
+);